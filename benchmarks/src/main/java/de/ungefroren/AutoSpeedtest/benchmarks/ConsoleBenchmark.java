@@ -0,0 +1,90 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.benchmarks;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ungefroren.AutoSpeedtest.gui.ConsolePanel;
+
+/**
+ * Writing lines to the log window of the gui, works without a display
+ * <p>
+ * {@code println} is what the thread that prints pays, {@code printlnAndDisplay} also includes adding
+ * the lines to the text area and removing the oldest lines on the event dispatch thread.
+ * The time is per line.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class ConsoleBenchmark {
+
+    private static final int LINES = 100;
+    private static final String LINE = "Speedtest done! Ping: 18.345ms Download: 93.872Mbit/s Upload: 38.235Mbit/s"
+            + " Server: Example ISP (Frankfurt)";
+
+    private ConsolePanel console;
+    private PrintStream out;
+
+    @Setup
+    public void create() throws IOException {
+        console = new ConsolePanel("Log:");
+        console.limitOutput(ConsolePanel.DEFAULT_LINES, null);
+        out = console.printer();
+    }
+
+    @Benchmark
+    public void println() {
+        out.println(LINE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void printlnAndDisplay() throws InvocationTargetException, InterruptedException {
+        for (int i = 0; i < LINES; i++) out.println(LINE);
+        SwingUtilities.invokeAndWait(console::refresh);
+    }
+}
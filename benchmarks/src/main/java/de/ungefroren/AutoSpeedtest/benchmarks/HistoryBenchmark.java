@@ -0,0 +1,128 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ungefroren.AutoSpeedtest.Log;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+import de.ungefroren.AutoSpeedtest.store.ResultStore;
+
+/**
+ * Reading the whole history, as done by the chart, the rollups and queries
+ * <p>
+ * {@code csv} parses every line of the log, {@code binary} scans the same results in the binary store.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+
+    @Param({"100000"})
+    public int results;
+
+    private File directory;
+    private File file;
+    private ResultStore store;
+
+    @Setup
+    public void write() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("history-benchmark").toFile();
+        file = new File(directory, "log.csv");
+        store = new ResultStore(new File(directory, "binary"));
+        final List<Speedtest> speedtests = Results.speedtests(results);
+        Log log = new Log(file, ';');
+        for (Speedtest speedtest : speedtests) {
+            log.log(speedtest);
+            store.append(speedtest);
+        }
+        log.close();
+        store.flush(false);
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        store.close();
+        delete(directory);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) for (File child : files) delete(child);
+        file.delete();
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        final char decimalSeparator = Speedtest.getDecimalSeparator();
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), Charset.defaultCharset())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    Speedtest.fromCsv(line, ';', decimalSeparator);
+                    count++;
+                } catch (IllegalArgumentException ignored) {
+                    //header
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long binary() throws IOException {
+        final AtomicLong count = new AtomicLong();
+        store.scan(Instant.EPOCH, Instant.now(), s -> count.incrementAndGet());
+        return count.get();
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ungefroren.AutoSpeedtest.Log;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Appending results to the log file
+ * <p>
+ * {@code appendAndWait} waits until every result is written before the next one is logged (one test per round),
+ * {@code appendBatched} logs {@value #BATCH} results and waits once (many servers per round).
+ * The time is per result.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogBenchmark {
+
+    private static final int BATCH = 100;
+
+    @Param({"SHUTDOWN", "ALWAYS"})
+    public Log.Fsync fsync;
+
+    private final Speedtest result = Results.speedtests(1).get(0);
+    private File directory;
+    private Log log;
+
+    @Setup
+    public void open() throws IOException {
+        directory = Files.createTempDirectory("log-benchmark").toFile();
+        log = new Log(new File(directory, "log.csv"), ';', fsync, 0, false);
+    }
+
+    @TearDown
+    public void close() {
+        log.close();
+        File[] files = directory.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public void appendAndWait() throws InterruptedException {
+        log.log(result);
+        log.flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void appendBatched() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) log.log(result);
+        log.flush();
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ungefroren.AutoSpeedtest.backend.JsonFields;
+
+/**
+ * Reading the results from the JSON output of speedtest-cli and iperf3
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    /**
+     * Same fields as read by the cli backend
+     */
+    private final JsonFields cliFields = new JsonFields("ping", "download", "upload", "timestamp",
+                                                        "server.sponsor", "server.name", "server.url", "error");
+    /**
+     * Same fields as read by the iperf3 backend
+     */
+    private final JsonFields iperf3Fields = new JsonFields("end.sum_received.bits_per_second",
+                                                           "end.streams.0.sender.mean_rtt", "error");
+    private final String iperf3Json = Results.iperf3Json(10);
+
+    @Benchmark
+    public Map<String, String> speedtestCli() throws IOException {
+        return cliFields.read(Results.SPEEDTEST_CLI_JSON);
+    }
+
+    @Benchmark
+    public Map<String, String> iperf3() throws IOException {
+        return iperf3Fields.read(iperf3Json);
+    }
+}
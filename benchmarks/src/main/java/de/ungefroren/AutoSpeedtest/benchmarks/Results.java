@@ -0,0 +1,102 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.benchmarks;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Deterministic test data shared by the benchmarks
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+final class Results {
+
+    /**
+     * Output of speedtest-cli --json, shortened but with the same structure
+     */
+    static final String SPEEDTEST_CLI_JSON = "{\"download\": 93872356.7349, \"upload\": 38234789.234, \"ping\": 18.345,"
+            + " \"server\": {\"url\": \"http://speedtest.example.net:8080/speedtest/upload.php\", \"lat\": \"50.1109\","
+            + " \"lon\": \"8.6821\", \"name\": \"Frankfurt\", \"country\": \"Germany\", \"cc\": \"DE\","
+            + " \"sponsor\": \"Example ISP\", \"id\": \"11547\", \"host\": \"speedtest.example.net:8080\","
+            + " \"d\": 12.3456, \"latency\": 18.345},"
+            + " \"timestamp\": \"2018-07-05T12:00:00.123456Z\", \"bytes_sent\": 48234496, \"bytes_received\": 117489234,"
+            + " \"share\": null, \"client\": {\"ip\": \"203.0.113.7\", \"lat\": \"50.1\", \"lon\": \"8.7\","
+            + " \"isp\": \"Example ISP\", \"isprating\": \"3.7\", \"rating\": \"0\", \"ispdlavg\": \"0\","
+            + " \"ispulavg\": \"0\", \"loggedin\": \"0\", \"country\": \"DE\"}}";
+
+    private Results() {
+    }
+
+    /**
+     * Output of iperf3 -J with one interval per second and four streams
+     */
+    static String iperf3Json(int seconds) {
+        StringBuilder json = new StringBuilder("{\"start\": {\"connected\": [{\"socket\": 5}], \"version\": \"iperf 3.9\"},"
+                                                       + " \"intervals\": [");
+        for (int i = 0; i < seconds; i++) {
+            if (i > 0) json.append(", ");
+            json.append("{\"streams\": [");
+            for (int s = 0; s < 4; s++) {
+                if (s > 0) json.append(", ");
+                json.append("{\"socket\": ").append(5 + s).append(", \"start\": ").append(i)
+                        .append(", \"end\": ").append(i + 1).append(", \"bytes\": 11796480, \"bits_per_second\": 94371840.5,")
+                        .append(" \"retransmits\": 0, \"snd_cwnd\": 1493184, \"rtt\": 2345, \"omitted\": false}");
+            }
+            json.append("], \"sum\": {\"start\": ").append(i).append(", \"bits_per_second\": 377487362}}");
+        }
+        json.append("], \"end\": {\"streams\": [{\"sender\": {\"bytes\": 471859200, \"mean_rtt\": 2345},")
+                .append(" \"receiver\": {\"bytes\": 471859200}}], \"sum_sent\": {\"bits_per_second\": 377487362},")
+                .append(" \"sum_received\": {\"bits_per_second\": 376123456.7}}}");
+        return json.toString();
+    }
+
+    /**
+     * @param count number of results
+     * @return completed speedtests, one every 10 minutes against 5 servers
+     */
+    static List<Speedtest> speedtests(int count) {
+        final Random random = new Random(42);
+        final ZonedDateTime start = ZonedDateTime.of(2018, 7, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+        List<Speedtest> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int server = i % 5;
+            results.add(Speedtest.of(start.plusMinutes(10L * i),
+                                     15 + random.nextDouble() * 10,
+                                     80e6 + random.nextDouble() * 20e6,
+                                     35e6 + random.nextDouble() * 5e6,
+                                     "Example ISP " + server,
+                                     "City " + server,
+                                     "http://speedtest" + server + ".example.net:8080/speedtest/upload.php"));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.stats.Ewma;
+
+/**
+ * Shortens the interval while the connection is slower than usual
+ * <p>
+ * For every server a baseline of download and upload is kept as exponentially weighted moving average.
+ * A round in which a result falls below a fraction of its baseline (or a test fails) switches to the burst interval,
+ * so a slowdown is captured with more results. Once the results are back to normal the interval is doubled
+ * after every round until it is back at the normal interval.
+ * Results below the baseline don't update it, so a slowdown doesn't become the new normal,
+ * unless it lasts for {@value #ACCEPT_AFTER} results of the server (e.g. after a change of the contract).
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Adaptive implements Consumer<Speedtest> {
+
+    /**
+     * Weight of a new result in the baseline, about the last 10 results count
+     */
+    private static final double ALPHA = 0.2;
+    /**
+     * Number of results of a server before its baseline is used
+     */
+    private static final int WARMUP = 5;
+    /**
+     * Number of degraded results of a server in a row after which they become the new baseline
+     */
+    private static final int ACCEPT_AFTER = 20;
+
+    private final double threshold;
+    private long interval;
+    private final long burst;
+    private final Map<String, Baseline> baselines = new HashMap<>();
+    private long current;
+    private boolean degraded = false;
+
+    /**
+     * @param threshold fraction of the baseline below which a result counts as degraded, e.g. 0.7
+     * @param interval  normal interval in milliseconds
+     * @param burst     interval in milliseconds while results are degraded
+     */
+    public Adaptive(double threshold, long interval, long burst) {
+        if (threshold <= 0 || threshold >= 1) throw new IllegalArgumentException("threshold must be between 0 and 1");
+        if (burst < 1 || burst > interval) throw new IllegalArgumentException("burst interval must be less than the interval");
+        this.threshold = threshold;
+        this.interval = interval;
+        this.burst = burst;
+        this.current = interval;
+    }
+
+    /**
+     * Compare a result with the baseline of its server and update the baseline
+     *
+     * @param speedtest a test that has been run, successful or not
+     */
+    @Override
+    public synchronized void accept(Speedtest speedtest) {
+        if (!speedtest.completed()) {
+            degraded = true;
+            return;
+        }
+        final String key = speedtest.getServerID().map(String::valueOf).orElse(speedtest.getUrl());
+        Baseline baseline = baselines.computeIfAbsent(key, k -> new Baseline());
+        if (baseline.download.getCount() >= WARMUP) {
+            final boolean download = speedtest.getDownload() < threshold * baseline.download.get();
+            final boolean upload = speedtest.getUpload() < threshold * baseline.upload.get();
+            if ((download || upload) && ++baseline.streak < ACCEPT_AFTER) {
+                degraded = true;
+                System.out.println(String.format("Result of %s below the usual rates (download %.1f of %.1f Mbit/s, upload %.1f of %.1f Mbit/s)",
+                                                 speedtest.getServerName(),
+                                                 speedtest.getDownload() / 1e6, baseline.download.get() / 1e6,
+                                                 speedtest.getUpload() / 1e6, baseline.upload.get() / 1e6));
+                return;
+            }
+        }
+        if (baseline.streak >= ACCEPT_AFTER) {
+            System.out.println("Rates of " + speedtest.getServerName() + " have been lower for a while, using them as new baseline.");
+            baseline = new Baseline();
+            baselines.put(key, baseline);
+        }
+        baseline.streak = 0;
+        baseline.download.add(speedtest.getDownload());
+        baseline.upload.add(speedtest.getUpload());
+    }
+
+    /**
+     * Call after every round
+     *
+     * @return the interval in milliseconds until the next round
+     */
+    public synchronized long endRound() {
+        if (degraded) {
+            final long burst = Math.min(this.burst, interval);
+            if (current != burst) System.out.println("Connection degraded, testing every " + burst / 1000 + " seconds.");
+            current = burst;
+        } else if (current < interval) {
+            current = Math.min(current * 2, interval);
+            System.out.println("Connection recovered, testing every " + current / 1000 + " seconds.");
+        }
+        degraded = false;
+        return current;
+    }
+
+    /**
+     * Change the normal interval, e.g. from the control api
+     *
+     * @param interval normal interval in milliseconds
+     * @return the interval in milliseconds that is used right now
+     */
+    public synchronized long setInterval(long interval) {
+        //stays in the burst interval while the connection is degraded
+        current = current < this.interval ? Math.min(current, interval) : interval;
+        this.interval = interval;
+        return current;
+    }
+
+    /**
+     * @return the interval in milliseconds that is used right now
+     */
+    public synchronized long getCurrentInterval() {
+        return current;
+    }
+
+    /**
+     * Download and upload baseline of one server
+     */
+    private static class Baseline {
+
+        private final Ewma download = new Ewma(ALPHA);
+        private final Ewma upload = new Ewma(ALPHA);
+        private int streak = 0;
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.Map;
+
+import de.ungefroren.AutoSpeedtest.backend.Scope;
+import de.ungefroren.AutoSpeedtest.stats.Ewma;
+
+/**
+ * Limits the data the tests may transfer per day and per month
+ * <p>
+ * The less of the budget is left, the less the tests measure: first the tests are shortened,
+ * then only the download is measured and at last only the ping.
+ * A scope is also skipped if the tests of a round would probably use more than what is left,
+ * based on the data the last tests with that scope used.
+ * The used data is stored next to the log in {@code [log]-budget.txt}, so it survives a restart.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Budget {
+
+    /**
+     * Fraction of the budget that has to be left for each scope
+     */
+    private static final Map<Scope, Double> LEVELS = new EnumMap<>(Scope.class);
+
+    static {
+        LEVELS.put(Scope.FULL, 0.5);
+        LEVELS.put(Scope.SHORT, 0.25);
+        LEVELS.put(Scope.DOWNLOAD, 0.1);
+        LEVELS.put(Scope.LATENCY, 0.0);
+    }
+
+    private final File file;
+    private final long daily;
+    private final long monthly;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<Scope, Ewma> costs = new EnumMap<>(Scope.class);
+
+    private LocalDate day;
+    private long dayBytes = 0;
+    private YearMonth month;
+    private long monthBytes = 0;
+    private Scope last = Scope.FULL;
+
+    /**
+     * @param log     the log of the results, the budget is stored next to it in {@code [log]-budget.txt}
+     * @param daily   bytes per day or 0 for no daily limit
+     * @param monthly bytes per month or 0 for no monthly limit
+     */
+    public Budget(File log, long daily, long monthly) {
+        final File logFile = log.getAbsoluteFile();
+        String name = logFile.getName();
+        if (name.toLowerCase().endsWith(".csv")) name = name.substring(0, name.length() - 4);
+        this.file = new File(logFile.getParentFile(), name + "-budget.txt");
+        this.daily = daily;
+        this.monthly = monthly;
+        for (Scope scope : Scope.values()) costs.put(scope, new Ewma(0.3));
+        day = LocalDate.now(zone);
+        month = YearMonth.from(day);
+        load();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Pick what the tests of the next round measure
+     *
+     * @param tests number of tests in the round
+     * @return the scope
+     */
+    public synchronized Scope scope(int tests) {
+        roll();
+        final long remaining = getRemaining();
+        final double fraction = fraction();
+        Scope scope = Scope.LATENCY;
+        for (Scope candidate : Scope.values()) {
+            final double cost = costs.get(candidate).get();
+            //unknown costs are not a reason to skip a scope
+            final boolean affordable = Double.isNaN(cost) || cost * tests <= remaining;
+            if (candidate == Scope.LATENCY || fraction > LEVELS.get(candidate) && affordable) {
+                scope = candidate;
+                break;
+            }
+        }
+        if (scope != last) {
+            System.out.println(String.format("Data budget: %.1f MB (%d%%) left, %s", remaining / 1e6, Math.round(fraction * 100),
+                                             describe(scope)));
+            last = scope;
+        }
+        return scope;
+    }
+
+    private static String describe(Scope scope) {
+        switch (scope) {
+            case FULL:
+                return "running full tests.";
+            case SHORT:
+                return "running shorter tests.";
+            case DOWNLOAD:
+                return "only measuring the download.";
+            default:
+                return "only measuring the ping.";
+        }
+    }
+
+    /**
+     * Add the data a test used to the budget and store the budget that is left in the test
+     *
+     * @param speedtest a test that has been run, successful or not
+     */
+    public synchronized void record(Speedtest speedtest) {
+        roll();
+        dayBytes += speedtest.getBytes();
+        monthBytes += speedtest.getBytes();
+        if (speedtest.completed()) costs.get(speedtest.getScope()).add(speedtest.getBytes());
+        speedtest.setBudgetLeft(getRemaining());
+        save();
+    }
+
+    /**
+     * @return bytes left in the tighter of the daily and the monthly budget
+     */
+    public synchronized long getRemaining() {
+        long remaining = Long.MAX_VALUE;
+        if (daily > 0) remaining = Math.min(remaining, daily - dayBytes);
+        if (monthly > 0) remaining = Math.min(remaining, monthly - monthBytes);
+        return Math.max(0, remaining);
+    }
+
+    /**
+     * @return fraction of the tighter budget that is left
+     */
+    private double fraction() {
+        double fraction = 1;
+        if (daily > 0) fraction = Math.min(fraction, (double) (daily - dayBytes) / daily);
+        if (monthly > 0) fraction = Math.min(fraction, (double) (monthly - monthBytes) / monthly);
+        return Math.max(0, fraction);
+    }
+
+    /**
+     * Start a new day or month if it has changed since the last test
+     */
+    private void roll() {
+        final LocalDate today = LocalDate.now(zone);
+        if (!today.equals(day)) {
+            day = today;
+            dayBytes = 0;
+        }
+        if (!YearMonth.from(today).equals(month)) {
+            month = YearMonth.from(today);
+            monthBytes = 0;
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split("\t");
+                if (parts.length != 3) continue;
+                //only the counters of the current day and month are used
+                if (parts[0].equals("day") && LocalDate.parse(parts[1]).equals(day)) dayBytes = Long.parseLong(parts[2]);
+                if (parts[0].equals("month") && YearMonth.parse(parts[1]).equals(month)) monthBytes = Long.parseLong(parts[2]);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not read the data budget from " + file + ", starting from 0: " + e);
+        }
+    }
+
+    private void save() {
+        final File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write("day\t" + day + "\t" + dayBytes);
+                writer.newLine();
+                writer.write("month\t" + month + "\t" + monthBytes);
+                writer.newLine();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder description = new StringBuilder();
+        if (daily > 0) description.append(String.format("%.1f of %.1f MB today", (daily - dayBytes) / 1e6, daily / 1e6));
+        if (daily > 0 && monthly > 0) description.append(", ");
+        if (monthly > 0) description.append(String.format("%.1f of %.1f MB this month", (monthly - monthBytes) / 1e6, monthly / 1e6));
+        return description.append(" left").toString();
+    }
+}
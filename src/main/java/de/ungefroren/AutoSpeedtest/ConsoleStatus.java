@@ -0,0 +1,70 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.backend.Progress;
+
+/**
+ * Shows the progress of running speedtests in a single line of the console that is overwritten
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ConsoleStatus implements Consumer<ProgressMonitor.Event> {
+
+    /**
+     * Minimum time between two updates of the line in nanoseconds
+     */
+    private static final long THROTTLE = 1000000000L;
+
+    private long lastUpdate = 0;
+    private int length = 0;
+
+    @Override
+    public synchronized void accept(ProgressMonitor.Event event) {
+        if (event.getPhase() == Progress.Phase.DONE) {
+            //clear the line, so the result can be printed
+            if (length > 0) System.out.print("\r" + repeat(' ', length) + "\r");
+            length = 0;
+            return;
+        }
+        final long now = System.nanoTime();
+        if (length > 0 && now - lastUpdate < THROTTLE) return;
+        lastUpdate = now;
+        String line = event.toString();
+        if (event.getFraction() >= 0) line = String.format("[%3d%%] %s", (int) (event.getFraction() * 100), line);
+        System.out.print("\r" + line + repeat(' ', Math.max(0, length - line.length())));
+        System.out.flush();
+        length = line.length();
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) builder.append(c);
+        return builder.toString();
+    }
+}
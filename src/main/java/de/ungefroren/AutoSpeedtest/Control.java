@@ -0,0 +1,248 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/JSON api to control the running program
+ * <p>
+ * <ul>
+ * <li>{@code GET /status} interval, servers, next run and if a test is running</li>
+ * <li>{@code POST /round} runs all tests now, or after the running ones</li>
+ * <li>{@code POST /test?server=[id]} runs a test against one server</li>
+ * <li>{@code GET /results?n=[count]} the last results, oldest first</li>
+ * <li>{@code PUT /interval?value=[time]} changes the interval, e.g. {@code 30m}</li>
+ * <li>{@code PUT /servers?ids=[ids separated by ,]} changes the servers, empty for automatic selection</li>
+ * </ul>
+ * Tests only run on the thread of the scheduler, so requests never wait for a test.
+ * Requests for a round that arrive before it started get the same round, requests for a test
+ * against a server that is already queued are merged too.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Control implements Consumer<Speedtest> {
+
+    public static final int CACHE_SIZE = 100;
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final Pattern TIME = Pattern.compile("(\\d+)([smhd]?)");
+
+    private final Scheduler scheduler;
+    private final ArrayDeque<Speedtest> results = new ArrayDeque<>(CACHE_SIZE);
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+    private HttpServer httpServer = null;
+
+    /**
+     * @param scheduler the scheduler of the rounds
+     */
+    public Control(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Add a result to the cache of the last results
+     *
+     * @param speedtest a completed speedtest
+     */
+    @Override
+    public void accept(Speedtest speedtest) {
+        synchronized (results) {
+            if (results.size() == CACHE_SIZE) results.removeFirst();
+            results.addLast(speedtest);
+        }
+    }
+
+    /**
+     * Serve the api
+     *
+     * @param address address to listen on
+     * @throws IOException if the address can't be bound
+     */
+    public synchronized void serve(InetSocketAddress address) throws IOException {
+        if (httpServer != null) httpServer.stop(0);
+        httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/", this::handle);
+        httpServer.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Control");
+            t.setDaemon(true);
+            return t;
+        }));
+        httpServer.start();
+        System.out.println("Serving the control api at http://" + address.getHostString() + ":"
+                                   + httpServer.getAddress().getPort() + "/\n");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final String path = exchange.getRequestURI().getPath();
+            final Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            switch (path) {
+                case "/status":
+                    if (!method.equals("GET")) break;
+                    respond(exchange, 200, status());
+                    return;
+                case "/round":
+                    if (!method.equals("POST")) break;
+                    final long round = scheduler.trigger();
+                    if (round < 0) respond(exchange, 503, error("shutting down"));
+                    else respond(exchange, 202, "{\"round\":" + round + "}");
+                    return;
+                case "/test":
+                    if (!method.equals("POST")) break;
+                    final int server;
+                    try {
+                        server = Integer.parseInt(query.getOrDefault("server", ""));
+                    } catch (NumberFormatException e) {
+                        respond(exchange, 400, error("server must be a server id"));
+                        return;
+                    }
+                    final boolean added = queued.add(server);
+                    if (added) {
+                        scheduler.execute(() -> {
+                            queued.remove(server);
+                            Main.runSpeedtest(server);
+                        });
+                    }
+                    respond(exchange, 202, "{\"server\":" + server + ",\"merged\":" + !added + "}");
+                    return;
+                case "/results":
+                    if (!method.equals("GET")) break;
+                    final int count;
+                    try {
+                        count = Integer.parseInt(query.getOrDefault("n", "10"));
+                    } catch (NumberFormatException e) {
+                        respond(exchange, 400, error("n must be a number"));
+                        return;
+                    }
+                    respond(exchange, 200, results(count));
+                    return;
+                case "/interval":
+                    if (!method.equals("PUT") && !method.equals("POST")) break;
+                    final Matcher m = TIME.matcher(query.getOrDefault("value", ""));
+                    if (!m.matches() || Long.parseLong(m.group(1)) == 0) {
+                        respond(exchange, 400, error("value must be a time, e.g. 30m"));
+                        return;
+                    }
+                    Main.setInterval(Main.toMillis(Long.parseLong(m.group(1)), m.group(2)));
+                    respond(exchange, 200, status());
+                    return;
+                case "/servers":
+                    if (!method.equals("PUT") && !method.equals("POST")) break;
+                    final String ids = query.get("ids");
+                    if (ids == null || !ids.matches("(\\d+(,\\d+)*)?")) {
+                        respond(exchange, 400, error("ids must be server ids separated by , or empty"));
+                        return;
+                    }
+                    final List<Integer> servers = new ArrayList<>();
+                    if (!ids.isEmpty()) for (String id : ids.split(",")) servers.add(Integer.parseInt(id));
+                    Main.setServerIds(servers);
+                    respond(exchange, 200, status());
+                    return;
+                default:
+                    respond(exchange, 404, error("unknown path"));
+                    return;
+            }
+            respond(exchange, 405, error("method not allowed"));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            respond(exchange, 500, error(e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String status() {
+        final StringJoiner servers = new StringJoiner(",", "[", "]");
+        Main.getServerIds().forEach(id -> servers.add(String.valueOf(id)));
+        return "{\"running\":" + scheduler.isRunning()
+                + ",\"rounds\":" + scheduler.getRuns()
+                + ",\"nextRun\":" + scheduler.getNextRun().map(next -> "\"" + next.toOffsetDateTime() + "\"").orElse("null")
+                + ",\"interval\":" + Main.getInterval() / 1000
+                + ",\"currentInterval\":" + scheduler.getCurrentInterval() / 1000
+                + ",\"servers\":" + servers
+                + "}";
+    }
+
+    private String results(int count) {
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+        synchronized (results) {
+            //the last results, oldest first
+            final Iterator<Speedtest> i = results.iterator();
+            for (int skip = results.size() - Math.max(0, count); skip > 0; skip--) i.next();
+            while (i.hasNext()) json.add(i.next().valuesAsJson());
+        }
+        return json.toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static Map<String, String> query(String raw) {
+        final Map<String, String> query = new HashMap<>();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            final int eq = pair.indexOf('=');
+            try {
+                if (eq < 0) query.put(URLDecoder.decode(pair, "UTF-8"), "");
+                else query.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            } catch (IOException | IllegalArgumentException ignored) {
+                //malformed pair
+            }
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
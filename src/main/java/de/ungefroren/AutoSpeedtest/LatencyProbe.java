@@ -0,0 +1,312 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.ungefroren.AutoSpeedtest.stats.Histogram;
+
+/**
+ * Measures the latency to the servers every few seconds, between the full tests
+ * <p>
+ * Every probe opens a tcp connection to the server and requests a tiny file over http,
+ * so it costs less than a kilobyte. The times are collected in a histogram per server that is
+ * written to {@code <log>-latency.csv} and reset at the end of every minute: the number of probes, p50, p99 and max
+ * and the fraction of probes that failed, each for the tcp connect and the http round trip time.
+ * The histograms are reused, so the memory doesn't grow with the number of probes.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class LatencyProbe {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String USER_AGENT = "Mozilla/5.0 (Java) AutoSpeedtest";
+
+    private final File file;
+    private final char delimiter;
+    private final long period;
+    private final int timeout;
+    private final Callable<List<Target>> resolver;
+    private final Map<Target, Stats> stats = new LinkedHashMap<>();
+    private final byte[] buffer = new byte[1024];
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Probe");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private List<Target> targets = null;
+    private LocalDateTime minute = null;
+
+    /**
+     * @param log      the log of the results, the summaries are written next to it
+     * @param period   time between two probes of a server in milliseconds
+     * @param resolver returns the servers to probe, called again at the start of every minute
+     *                 so the probes follow the server selection
+     * @throws IOException if the summary file could not be created
+     */
+    public LatencyProbe(Log log, long period, Callable<List<Target>> resolver) throws IOException {
+        final File logFile = log.getFile().getAbsoluteFile();
+        String name = logFile.getName();
+        if (name.toLowerCase().endsWith(".csv")) name = name.substring(0, name.length() - 4);
+        this.file = new File(logFile.getParentFile(), name + "-latency.csv");
+        this.delimiter = log.getDelimiter();
+        this.period = period;
+        //a probe must not take longer than the time until the next one
+        this.timeout = (int) Math.max(1000, Math.min(period, Speedtest.getTimeout() * 1000L));
+        this.resolver = resolver;
+        if (!file.exists()) {
+            StringJoiner header = new StringJoiner(String.valueOf(delimiter));
+            header.add("Time").add("Server").add("Location")
+                    .add("Connect probes").add("Connect p50 (ms)").add("Connect p99 (ms)").add("Connect max (ms)").add("Connect loss (%)")
+                    .add("HTTP probes").add("HTTP p50 (ms)").add("HTTP p99 (ms)").add("HTTP max (ms)").add("HTTP loss (%)");
+            BufferedWriter bw = new BufferedWriter(new FileWriter(file, true));
+            bw.write(header.toString());
+            bw.close();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void start() {
+        executor.scheduleAtFixedRate(this::tick, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop probing and write the summary of the current minute
+     */
+    public void stop() {
+        //a running probe is finished, so it isn't counted as lost
+        executor.shutdown();
+        synchronized (this) {
+            if (minute != null) write(minute);
+            minute = null;
+            targets = null;
+        }
+    }
+
+    private synchronized void tick() {
+        //the current minute has already been written by stop()
+        if (executor.isShutdown()) return;
+        try {
+            final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            if (!now.equals(minute)) {
+                if (minute != null) write(minute);
+                minute = now;
+                resolve();
+            }
+            if (targets == null) return;
+            for (Target target : targets) probe(target, stats.computeIfAbsent(target, t -> new Stats()));
+        } catch (RuntimeException e) {
+            //an exception would cancel all following probes
+            e.printStackTrace();
+        }
+    }
+
+    private void resolve() {
+        try {
+            targets = resolver.call();
+        } catch (Exception e) {
+            //keep probing the last servers
+            if (targets == null) System.out.println("Could not find the servers for the latency probe (" + e + "), trying again.");
+        }
+    }
+
+    private void probe(Target target, Stats stats) {
+        stats.connect.probes++;
+        try (Socket socket = new Socket()) {
+            //the name is resolved before the time is taken, the jvm caches it anyway
+            final InetSocketAddress address = new InetSocketAddress(target.host, target.port);
+            final long start = System.nanoTime();
+            socket.connect(address, timeout);
+            stats.connect.times.record((System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            stats.connect.failed++;
+        }
+        if (target.url == null) return;
+        stats.http.probes++;
+        try {
+            final long requestStart = System.nanoTime();
+            HttpURLConnection connection = (HttpURLConnection) new URL(target.url + "?x=" + requestStart).openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setUseCaches(false);
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            connection.setRequestProperty("Cache-Control", "no-cache");
+            try (InputStream in = connection.getInputStream()) {
+                while (in.read(buffer) != -1) ;
+            }
+            stats.http.times.record((System.nanoTime() - requestStart) / 1e6);
+        } catch (IOException e) {
+            stats.http.failed++;
+        }
+    }
+
+    /**
+     * Append the summary of every server to the file and reset the histograms
+     */
+    private void write(LocalDateTime minute) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        symbols.setDecimalSeparator(Speedtest.getDecimalSeparator());
+        DecimalFormat format = new DecimalFormat("0.000", symbols);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file, true))) {
+            Iterator<Map.Entry<Target, Stats>> i = stats.entrySet().iterator();
+            while (i.hasNext()) {
+                Map.Entry<Target, Stats> entry = i.next();
+                final Stats s = entry.getValue();
+                //servers that are no longer probed are dropped
+                if (s.connect.probes == 0) {
+                    i.remove();
+                    continue;
+                }
+                StringJoiner row = new StringJoiner(String.valueOf(delimiter));
+                row.add(minute.format(TIME)).add(entry.getKey().name).add(entry.getKey().location);
+                for (Probes p : new Probes[]{s.connect, s.http}) {
+                    row.add(String.valueOf(p.probes))
+                            .add(number(format, p.times.percentile(50)))
+                            .add(number(format, p.times.percentile(99)))
+                            .add(number(format, p.times.getMax()))
+                            .add(p.probes == 0 ? "" : format.format(100.0 * p.failed / p.probes));
+                }
+                bw.newLine();
+                bw.write(row.toString());
+                s.reset();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String number(DecimalFormat format, double value) {
+        return Double.isNaN(value) ? "" : format.format(value);
+    }
+
+    /**
+     * A server to probe
+     */
+    public static class Target {
+
+        private final String name;
+        private final String location;
+        private final String host;
+        private final int port;
+        private final String url;
+
+        /**
+         * @param name     name of the server as in the log
+         * @param location location of the server as in the log
+         * @param host     host the tcp connection is opened to
+         * @param port     port the tcp connection is opened to
+         * @param url      url of a tiny file that is requested or null to only open a tcp connection
+         */
+        public Target(String name, String location, String host, int port, String url) {
+            this.name = name;
+            this.location = location;
+            this.host = host;
+            this.port = port;
+            this.url = url;
+        }
+
+        /**
+         * @param name     name of the server as in the log
+         * @param location location of the server as in the log
+         * @param url      url of a tiny file, the tcp connection is opened to its host
+         * @return the target
+         * @throws IOException if the url is malformed
+         */
+        public static Target http(String name, String location, String url) throws IOException {
+            final URL parsed = new URL(url);
+            final int port = parsed.getPort() == -1 ? parsed.getDefaultPort() : parsed.getPort();
+            return new Target(name, location, parsed.getHost(), port, url);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Target)) return false;
+            final Target other = (Target) o;
+            return name.equals(other.name) && location.equals(other.location) && host.equals(other.host) && port == other.port;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((name.hashCode() * 31 + location.hashCode()) * 31 + host.hashCode()) * 31 + port;
+        }
+    }
+
+    /**
+     * Probes of one server in the current minute
+     */
+    private static class Stats {
+
+        private final Probes connect = new Probes();
+        private final Probes http = new Probes();
+
+        void reset() {
+            connect.reset();
+            http.reset();
+        }
+    }
+
+    /**
+     * Probes of one kind, tcp connect or http request
+     */
+    private static class Probes {
+
+        private final Histogram times = new Histogram();
+        private long probes = 0;
+        private long failed = 0;
+
+        void reset() {
+            times.reset();
+            probes = 0;
+            failed = 0;
+        }
+    }
+}
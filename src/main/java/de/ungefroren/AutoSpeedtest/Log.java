@@ -23,46 +23,131 @@
  */
 package de.ungefroren.AutoSpeedtest;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import de.ungefroren.AutoSpeedtest.backend.Timings;
+import de.ungefroren.AutoSpeedtest.store.ResultStore;
 
 /**
  * Helper class that logs the results of speedtests to a .csv file
  * <p>
+ * The file is kept open and all rows are written by a dedicated writer thread,
+ * so slow disks never block the thread that runs the speedtests.
+ * Rows that pile up while the writer is busy are written together with a single write.
+ * <p>
  * Created on 08.07.2018.
  *
  * @author Jonas Blocher
  */
 public class Log {
 
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    /**
+     * Marker that stops the writer thread
+     */
+    private static final Entry CLOSE = new Entry(null, null);
+
     private static Log instance;
 
     private final File file;
     private final char delimiter;
+    private final boolean timings;
+    private final boolean data;
+    private final Fsync fsync;
+    private final long fsyncInterval;
+    private final Object fileLock = new Object();
+    /**
+     * Makes checking if the log is closed and queueing a line atomic, so no line is queued after {@link #CLOSE}
+     */
+    private final Object queueLock = new Object();
+    private final List<Consumer<Speedtest>> listeners = new CopyOnWriteArrayList<>();
+    private FileChannel channel;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+
+    private volatile ResultStore store = null;
+    private volatile boolean closed = false;
+    private long enqueued = 0;
+    private long written = 0;
 
     public Log(File file, char delimiter) {
+        this(file, delimiter, Fsync.SHUTDOWN, 0, false);
+    }
+
+    /**
+     * @see #Log(File, char, Fsync, long, boolean, boolean)
+     */
+    public Log(File file, char delimiter, Fsync fsync, long fsyncInterval, boolean timings) {
+        this(file, delimiter, fsync, fsyncInterval, timings, false);
+    }
+
+    /**
+     * @param file          the .csv file
+     * @param delimiter     delimiter of the columns
+     * @param fsync         when the file should be synced to disk
+     * @param fsyncInterval interval in milliseconds, only used with {@link Fsync#INTERVAL}
+     * @param timings       if the time spent in the phases of the tests should be written as additional columns,
+     *                      only possible if the file is new or already has these columns
+     * @param data          if the transferred data, the data budget and the scope of the tests should be written
+     *                      as additional columns, only possible if the file is new or already has these columns
+     */
+    public Log(File file, char delimiter, Fsync fsync, long fsyncInterval, boolean timings, boolean data) {
         this.file = file;
         this.delimiter = delimiter;
+        this.fsync = fsync;
+        this.fsyncInterval = fsyncInterval;
         //if log file doesn't exist create new one with header
-        if (!file.exists()) {
-            if (file.getParentFile() != null) file.getParentFile().mkdirs();
-            try {
-                BufferedWriter bw = new BufferedWriter(new FileWriter(file, true));
-                bw
-                        .append("Time").append(delimiter)
-                        .append("Ping (ms)").append(delimiter)
-                        .append("Download rate (Mbit/s)").append(delimiter)
-                        .append("Upload rate (Mbit/s)").append(delimiter)
-                        .append("Server").append(delimiter)
-                        .append("Location").append(delimiter)
-                        .append("URL");
-                bw.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        final boolean exists = file.exists();
+        if (!exists && file.getParentFile() != null) file.getParentFile().mkdirs();
+        try {
+            if (exists) {
+                //keep the columns of the existing file
+                String header;
+                try (BufferedReader reader = Files.newBufferedReader(file.toPath(), Charset.defaultCharset())) {
+                    header = reader.readLine();
+                }
+                final boolean hasTimings = Speedtest.csvHeader(delimiter, true, false).equals(header)
+                        || Speedtest.csvHeader(delimiter, true, true).equals(header);
+                final boolean hasData = Speedtest.csvHeader(delimiter, false, true).equals(header)
+                        || Speedtest.csvHeader(delimiter, true, true).equals(header);
+                if (timings && !hasTimings) {
+                    System.out.println("The log file has no timing columns, timings are not written to it.");
+                }
+                if (data && !hasData) {
+                    System.out.println("The log file has no data columns, the data budget is not written to it.");
+                }
+                timings = hasTimings;
+                data = hasData;
             }
+            this.timings = timings;
+            this.data = data;
+            channel = FileChannel.open(file.toPath(),
+                                       StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (!exists) write(new StringBuilder(Speedtest.csvHeader(delimiter, timings, data)));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open log file " + file, e);
         }
+        writer = new Thread(this::writeLoop, "Log-writer");
+        writer.setDaemon(true);
+        writer.start();
         instance = this;
     }
 
@@ -70,20 +155,86 @@ public class Log {
         return instance;
     }
 
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Additionally write all results to a binary store
+     *
+     * @param store the store or null to only write the .csv
+     */
+    public void setStore(ResultStore store) {
+        this.store = store;
+    }
+
+    public ResultStore getStore() {
+        return store;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Register a listener that is called from the writer thread for every result after it has been written
+     *
+     * @param listener the listener, should return quickly
+     */
+    public void addListener(Consumer<Speedtest> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Rewrite the log file and keep only the header and the lines that match the predicate
+     * <p>
+     * Lines that are logged while the file is rewritten are written afterwards.
+     *
+     * @param keep predicate for the lines that should be kept
+     * @return the number of removed lines
+     * @throws IOException if the file could not be rewritten
+     */
+    public int compact(Predicate<String> keep) throws IOException {
+        synchronized (fileLock) {
+            channel.force(false);
+            channel.close();
+            File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".compact");
+            int removed = 0;
+            try {
+                try (BufferedReader reader = Files.newBufferedReader(file.toPath(), Charset.defaultCharset());
+                     BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), Charset.defaultCharset())) {
+                    String line = reader.readLine();
+                    if (line != null) writer.write(line);
+                    while ((line = reader.readLine()) != null) {
+                        if (keep.test(line)) {
+                            writer.write(LINE_SEPARATOR);
+                            writer.write(line);
+                        } else {
+                            removed++;
+                        }
+                    }
+                }
+                if (removed > 0) {
+                    Files.move(temp.toPath(), file.toPath(),
+                               StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            return removed;
+        }
+    }
+
     /**
      * Log a line of text to the .csv
+     * <p>
+     * The line is written asynchronously, this only blocks if a lot of lines are waiting to be written.
      *
      * @param string a new line
      */
     public void log(String string) {
-        try {
-            BufferedWriter bw = new BufferedWriter(new FileWriter(file, true));
-            bw.newLine();
-            bw.write(string);
-            bw.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        enqueue(new Entry(string, null));
     }
 
     /**
@@ -92,6 +243,184 @@ public class Log {
      * @param speedtest a speedtest
      */
     public void log(Speedtest speedtest) {
-        log(speedtest.valuesAsCsv(delimiter));
+        enqueue(new Entry(speedtest.valuesAsCsv(delimiter, timings, data), speedtest));
+    }
+
+    private void enqueue(Entry entry) {
+        synchronized (queueLock) {
+            if (closed) {
+                System.err.println("Log already closed, dropping: " + entry.line);
+                return;
+            }
+            try {
+                //the writer doesn't need the lock, so it keeps draining the queue while this waits
+                queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        synchronized (this) {
+            enqueued++;
+        }
+    }
+
+    /**
+     * Wait until all lines that have been logged before are written to the file
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void flush() throws InterruptedException {
+        final long target = enqueued;
+        while (written < target && writer.isAlive()) wait(100);
+    }
+
+    /**
+     * Write all pending lines, sync the file to disk and close it
+     */
+    public void close() {
+        try {
+            synchronized (queueLock) {
+                if (closed) return;
+                closed = true;
+                queue.put(CLOSE);
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        final List<Entry> batch = new ArrayList<>();
+        final StringBuilder builder = new StringBuilder();
+        long lastSync = System.nanoTime();
+        boolean dirty = false;
+        boolean running = true;
+        while (running) {
+            try {
+                Entry first;
+                if (fsync == Fsync.INTERVAL && dirty) {
+                    long remaining = fsyncInterval - (System.nanoTime() - lastSync) / 1000000;
+                    first = queue.poll(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+                } else {
+                    first = queue.take();
+                }
+                if (first != null) {
+                    final long start = System.nanoTime();
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    builder.setLength(0);
+                    final ResultStore store = this.store;
+                    for (Entry entry : batch) {
+                        if (entry == CLOSE) {
+                            running = false;
+                        } else {
+                            builder.append(LINE_SEPARATOR).append(entry.line);
+                            if (store != null && entry.result != null) appendToStore(store, entry.result);
+                        }
+                    }
+                    if (builder.length() > 0) {
+                        write(builder);
+                        if (store != null) store.flush(false);
+                        dirty = true;
+                    }
+                    //every result of the batch waited for the whole batch
+                    final long time = System.nanoTime() - start;
+                    for (Entry entry : batch) {
+                        if (entry.result != null && entry.result.getTimings() != null) {
+                            entry.result.getTimings().add(Timings.Phase.LOG, time);
+                        }
+                    }
+                    for (Entry entry : batch) {
+                        if (entry.result != null) notifyListeners(entry.result);
+                    }
+                }
+                if (dirty && (fsync == Fsync.ALWAYS || !running
+                        || fsync == Fsync.INTERVAL && System.nanoTime() - lastSync >= fsyncInterval * 1000000)) {
+                    synchronized (fileLock) {
+                        channel.force(false);
+                    }
+                    if (store != null) store.flush(true);
+                    lastSync = System.nanoTime();
+                    dirty = false;
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            synchronized (this) {
+                for (Entry entry : batch) if (entry != CLOSE) written++;
+                notifyAll();
+            }
+            batch.clear();
+        }
+        try {
+            synchronized (fileLock) {
+                channel.force(false);
+                channel.close();
+            }
+            if (store != null) store.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void notifyListeners(Speedtest result) {
+        for (Consumer<Speedtest> listener : listeners) {
+            try {
+                listener.accept(result);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void appendToStore(ResultStore store, Speedtest result) {
+        try {
+            store.append(result);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void write(CharSequence text) throws IOException {
+        ByteBuffer buffer = Charset.defaultCharset().encode(text.toString());
+        synchronized (fileLock) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * A line of the .csv and the result it was created from, if any
+     */
+    private static class Entry {
+
+        private final String line;
+        private final Speedtest result;
+
+        private Entry(String line, Speedtest result) {
+            this.line = line;
+            this.result = result;
+        }
+    }
+
+    /**
+     * When the log file is synced to disk
+     */
+    public enum Fsync {
+        /**
+         * After every write
+         */
+        ALWAYS,
+        /**
+         * At most once per interval
+         */
+        INTERVAL,
+        /**
+         * Only when the log is closed
+         */
+        SHUTDOWN
     }
 }
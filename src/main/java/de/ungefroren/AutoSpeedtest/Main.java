@@ -23,25 +23,42 @@
  */
 package de.ungefroren.AutoSpeedtest;
 
-import javax.swing.UIManager;
-import java.awt.GraphicsEnvironment;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
-import java.text.DecimalFormatSymbols;
+import java.nio.file.Files;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import de.ungefroren.AutoSpeedtest.backend.CliBackend;
+import de.ungefroren.AutoSpeedtest.backend.FallbackBackend;
+import de.ungefroren.AutoSpeedtest.backend.Iperf3Backend;
+import de.ungefroren.AutoSpeedtest.backend.MockBackend;
+import de.ungefroren.AutoSpeedtest.backend.NativeBackend;
+import de.ungefroren.AutoSpeedtest.backend.ProcessRunner;
+import de.ungefroren.AutoSpeedtest.backend.Scope;
+import de.ungefroren.AutoSpeedtest.backend.Server;
+import de.ungefroren.AutoSpeedtest.backend.ServerSelector;
+import de.ungefroren.AutoSpeedtest.backend.WorkerBackend;
+import de.ungefroren.AutoSpeedtest.convert.Convert;
+import de.ungefroren.AutoSpeedtest.fleet.Agent;
+import de.ungefroren.AutoSpeedtest.fleet.Collector;
+import de.ungefroren.AutoSpeedtest.gui.Gui;
 import de.ungefroren.AutoSpeedtest.gui.SetupFrame;
 import de.ungefroren.AutoSpeedtest.gui.SpeedtestFrame;
+import de.ungefroren.AutoSpeedtest.query.Query;
+import de.ungefroren.AutoSpeedtest.store.ResultStore;
 
 /**
  * Created on 05.07.2018.
@@ -54,14 +71,42 @@ public class Main {
     public static final int DEFAULT_INTERVAL = 3600;
     public static final int DEFAULT_TIMEOUT = 10;
     public static final char DEFAULT_DELIMETER = ';';
+    private static final long MIN_RETENTION = 2 * 24 * 60 * 60 * 1000L;
+    private static final long DEFAULT_SELECTION_TTL = 60 * 60 * 1000L;
+    private static final double DEFAULT_ADAPTIVE_THRESHOLD = 0.7;
+    private static final long MIN_BURST_INTERVAL = 60 * 1000L;
+    private static final long DEFAULT_PROBE_PERIOD = 5 * 1000L;
+    private static final long CHECK_DEADLINE = 30 * 1000L;
+    private static final long INSTALL_DEADLINE = 5 * 60 * 1000L;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /**
+     * Remembers where speedtest-cli was found working, so it isn't started just to check it every time
+     */
+    private static final File CLI_CHECK = new File(System.getProperty("user.home"), ".autospeedtest-cli");
+    private static final long STARTED = System.currentTimeMillis();
 
-    private static boolean gui = false;
-    private static List<Integer> serverIds = new ArrayList<>();
+    private static volatile List<Integer> serverIds = new ArrayList<>();
     private static File log = new File(DEFAULT_FILE);
-    private static long interval = DEFAULT_INTERVAL * 1000L;
+    private static volatile long interval = DEFAULT_INTERVAL * 1000L;
     private static char delimiter = DEFAULT_DELIMETER;
+    private static int concurrency = 1;
+    private static Log.Fsync fsync = Log.Fsync.SHUTDOWN;
+    private static long fsyncInterval = 0;
+    private static File binary = null;
+    private static boolean rollup = false;
+    private static long retention = 0;
+    private static RoundExecutor roundExecutor;
+    private static Metrics metrics = null;
+    private static boolean timingColumns = false;
+    private static TimingsLog timingsLog = null;
+    private static Scheduler scheduler = null;
+    private static Adaptive adaptive = null;
+    private static Budget budget = null;
+    private static Agent agent = null;
+    private static WorkerBackend worker = null;
+    private static LatencyProbe probe = null;
 
-    private static SpeedtestFrame mainFrame = null;
+    private static Gui gui = null;
 
     /**
      * Print the asci art from header.txt
@@ -78,36 +123,184 @@ public class Main {
     }
 
     public static void main(String[] args) throws Exception {
-        //check if gui should be displayed
-        if (System.console() == null && !GraphicsEnvironment.isHeadless()) {
-            gui = true;
-        } else {
-            for (String arg : args) {
-                if (arg.matches("-*gui:true")) {
-                    gui = true;
-                    break;
-                }
-            }
+        //subcommands
+        if (args.length > 0 && args[0].equals("query")) {
+            Query.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("convert")) {
+            Convert.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("collect")) {
+            Collector.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
         }
 
-        //setup gui
-        if (gui) {
-            try {
-                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            mainFrame = new SpeedtestFrame("Log:").useAsOutput();
+        //a single round never shows the gui, so AWT isn't even loaded
+        boolean once = false;
+        for (String arg : args) {
+            if (arg.matches("-*once(:true)?")) once = true;
         }
+        if (!once) gui = Gui.start(args);
 
         printHaeder();
 
-        checkforSpeedtestCLI();
+        //handle arguments that are not part of the setup dialog
+        String engine = "native";
+        String iperf3Host = "localhost";
+        int iperf3Port = Iperf3Backend.DEFAULT_PORT;
+        long selectionTtl = DEFAULT_SELECTION_TTL;
+        int consoleLines = SpeedtestFrame.DEFAULT_LINES;
+        File consoleSpill = null;
+        InetSocketAddress metricsAddress = null;
+        boolean timingLog = false;
+        Scheduler.Overlap overlap = Scheduler.Overlap.COALESCE;
+        long jitter = 0;
+        List<Scheduler.Window> windows = new ArrayList<>();
+        double adaptiveThreshold = 0;
+        long burstInterval = 0;
+        long dailyBudget = 0;
+        long monthlyBudget = 0;
+        long probePeriod = 0;
+        String collector = null;
+        String site = null;
+        InetSocketAddress controlAddress = null;
+        for (String arg : args) {
+            Matcher m1 = Pattern.compile("-*engine:(native|cli|worker|iperf3|mock)").matcher(arg);
+            Matcher m2 = Pattern.compile("-*concurrency:(\\d+)").matcher(arg);
+            Matcher m3 = Pattern.compile("-*fsync:(always|shutdown|(\\d+)(ms|s)?)").matcher(arg);
+            Matcher m4 = Pattern.compile("-*binary:([^\\s]+)").matcher(arg);
+            Matcher m5 = Pattern.compile("-*rollup:(true|false)").matcher(arg);
+            Matcher m6 = Pattern.compile("-*retention:(\\d+)([smhd]?)").matcher(arg);
+            Matcher m7 = Pattern.compile("-*iperf3:([^\\s:]+)(:(\\d+))?").matcher(arg);
+            Matcher m8 = Pattern.compile("-*selection:(off|(\\d+)([smhd]?))").matcher(arg);
+            Matcher m9 = Pattern.compile("-*consoleLines:(\\d+)").matcher(arg);
+            Matcher m10 = Pattern.compile("-*consoleSpill:([^\\s]+)").matcher(arg);
+            Matcher m11 = Pattern.compile("-*metrics:(([^\\s:]+):)?(\\d+)").matcher(arg);
+            Matcher m12 = Pattern.compile("-*timings:(csv|log|true|false)").matcher(arg);
+            Matcher m13 = Pattern.compile("-*overlap:(skip|coalesce|queue)").matcher(arg);
+            Matcher m14 = Pattern.compile("-*jitter:(\\d+)([smhd]?)").matcher(arg);
+            Matcher m15 = Pattern.compile("-*window:([\\d:,-]+)").matcher(arg);
+            Matcher m16 = Pattern.compile("-*adaptive:(true|0?\\.\\d+)(:(\\d+)([smhd]?))?").matcher(arg);
+            Matcher m17 = Pattern.compile("-*budget:(\\d+(MB|GB)?/(day|month)(,\\d+(MB|GB)?/(day|month))?)").matcher(arg);
+            Matcher m18 = Pattern.compile("-*probe:(true|false|(\\d+)([smhd]?))").matcher(arg);
+            Matcher m19 = Pattern.compile("-*agent:(https?://[^\\s]+)").matcher(arg);
+            Matcher m20 = Pattern.compile("-*site:([^\\s]+)").matcher(arg);
+            Matcher m21 = Pattern.compile("-*control:(([^\\s:]+):)?(\\d+)").matcher(arg);
+            if (m1.matches()) {
+                engine = m1.group(1);
+            } else if (m2.matches()) {
+                concurrency = Math.max(1, Integer.parseInt(m2.group(1)));
+            } else if (m3.matches()) {
+                if (m3.group(2) != null) {
+                    fsync = Log.Fsync.INTERVAL;
+                    fsyncInterval = Long.parseLong(m3.group(2)) * ("s".equals(m3.group(3)) ? 1000 : 1);
+                } else {
+                    fsync = Log.Fsync.valueOf(m3.group(1).toUpperCase());
+                }
+            } else if (m4.matches()) {
+                binary = new File(m4.group(1));
+            } else if (m5.matches()) {
+                rollup = Boolean.parseBoolean(m5.group(1));
+            } else if (m6.matches()) {
+                retention = toMillis(Long.parseLong(m6.group(1)), m6.group(2).isEmpty() ? "d" : m6.group(2));
+                if (retention < MIN_RETENTION) {
+                    System.out.println("Retention must be at least 2 days, using 2 days.");
+                    retention = MIN_RETENTION;
+                }
+                rollup = true;
+            } else if (m7.matches()) {
+                engine = "iperf3";
+                iperf3Host = m7.group(1);
+                if (m7.group(3) != null) iperf3Port = Integer.parseInt(m7.group(3));
+            } else if (m8.matches()) {
+                selectionTtl = m8.group(2) == null ? 0 : toMillis(Long.parseLong(m8.group(2)), m8.group(3).isEmpty() ? "m" : m8.group(3));
+            } else if (m9.matches()) {
+                consoleLines = Integer.parseInt(m9.group(1));
+            } else if (m10.matches()) {
+                consoleSpill = new File(m10.group(1));
+            } else if (m11.matches()) {
+                final int port = Integer.parseInt(m11.group(3));
+                metricsAddress = m11.group(2) == null ? new InetSocketAddress(port) : new InetSocketAddress(m11.group(2), port);
+            } else if (m12.matches()) {
+                timingColumns = m12.group(1).equals("csv") || m12.group(1).equals("true");
+                timingLog = m12.group(1).equals("log") || m12.group(1).equals("true");
+            } else if (m13.matches()) {
+                overlap = m13.group(1).equals("queue") ? Scheduler.Overlap.QUEUE_ONE
+                        : Scheduler.Overlap.valueOf(m13.group(1).toUpperCase());
+            } else if (m14.matches()) {
+                jitter = toMillis(Long.parseLong(m14.group(1)), m14.group(2).isEmpty() ? "s" : m14.group(2));
+            } else if (m15.matches()) {
+                for (String window : m15.group(1).split(",")) {
+                    try {
+                        windows.add(Scheduler.Window.parse(window));
+                    } catch (IllegalArgumentException e) {
+                        System.out.println(e.getMessage() + ", use HH:mm-HH:mm.");
+                    }
+                }
+            } else if (m16.matches()) {
+                adaptiveThreshold = m16.group(1).equals("true") ? DEFAULT_ADAPTIVE_THRESHOLD : Double.parseDouble(m16.group(1));
+                if (m16.group(3) != null) burstInterval = toMillis(Long.parseLong(m16.group(3)), m16.group(4).isEmpty() ? "m" : m16.group(4));
+            } else if (m17.matches()) {
+                for (String limit : m17.group(1).split(",")) {
+                    Matcher m = Pattern.compile("(\\d+)(MB|GB)?/(day|month)").matcher(limit);
+                    if (!m.matches()) continue;
+                    final long bytes = Long.parseLong(m.group(1)) * ("GB".equals(m.group(2)) ? 1000000000L : 1000000L);
+                    if (m.group(3).equals("day")) dailyBudget = bytes;
+                    else monthlyBudget = bytes;
+                }
+            } else if (m18.matches()) {
+                if (m18.group(2) != null) probePeriod = Math.max(1000, toMillis(Long.parseLong(m18.group(2)), m18.group(3).isEmpty() ? "s" : m18.group(3)));
+                else probePeriod = m18.group(1).equals("true") ? DEFAULT_PROBE_PERIOD : 0;
+            } else if (m19.matches()) {
+                collector = m19.group(1);
+            } else if (m20.matches()) {
+                site = m20.group(1);
+            } else if (m21.matches()) {
+                //only reachable from this machine unless an address is given
+                final int port = Integer.parseInt(m21.group(3));
+                controlAddress = new InetSocketAddress(m21.group(2) == null ? "127.0.0.1" : m21.group(2), port);
+            }
+        }
+        if (gui != null) gui.limitOutput(consoleLines, consoleSpill);
+        if (metricsAddress != null) {
+            metrics = new Metrics();
+            metrics.serve(metricsAddress);
+        }
+
+        //speedtest.net server list and latency probes used to pick the best server
+        final NativeBackend nativeBackend = new NativeBackend();
+        if (selectionTtl > 0) Speedtest.setServerSelector(new ServerSelector(nativeBackend, selectionTtl));
+        switch (engine) {
+            case "cli":
+                checkforSpeedtestCLI();
+                Speedtest.setBackend(new CliBackend());
+                break;
+            case "worker":
+                checkforSpeedtestCLI();
+                worker = new WorkerBackend();
+                Speedtest.setBackend(worker);
+                break;
+            case "iperf3":
+                System.out.println("Using iperf3 server " + iperf3Host + ":" + iperf3Port + ".\n");
+                Speedtest.setBackend(new Iperf3Backend(iperf3Host, iperf3Port));
+                Speedtest.setServerSelector(null);
+                break;
+            case "mock":
+                System.out.println("Using mock engine, no real speedtests are run.\n");
+                Speedtest.setBackend(new MockBackend());
+                Speedtest.setServerSelector(null);
+                break;
+            default:
+                System.out.println("Using native speedtest engine, speedtest-cli is only used as fallback.\n");
+                Speedtest.setBackend(new FallbackBackend(nativeBackend, new CliBackend()));
+        }
 
-        if (gui) {
+        if (gui != null) {
 
             //show setting dialog
-            SetupFrame setup = new SetupFrame(mainFrame);
+            SetupFrame setup = gui.setup(nativeBackend.getCatalog());
             serverIds = setup.getServerIDs();
             log = setup.getFile();
             interval = setup.getInterval();
@@ -120,13 +313,22 @@ public class Main {
             //handle arguments
             for (String arg : args) {
                 Matcher m1 = Pattern.compile("-*timeout:(\\d+)").matcher(arg);
-                Matcher m2 = Pattern.compile("-*servers:(\\d+(,\\d+)?)").matcher(arg);
+                Matcher m2 = Pattern.compile("-*servers:(\\d+(,\\d+)*|nearest(\\d+))").matcher(arg);
                 Matcher m3 = Pattern.compile("-*log:([^\\s]+)").matcher(arg);
                 Matcher m4 = Pattern.compile("-*inteval:(\\d+)([smhd]?)").matcher(arg);
                 Matcher m5 = Pattern.compile("-*decimalSeparator:([^\\s])").matcher(arg);
                 Matcher m6 = Pattern.compile("-*delimiter:([^\\s])").matcher(arg);
                 if (m1.matches()) {
                     Speedtest.TIMEOUT = Integer.parseInt(m1.group(1));
+                } else if (m2.matches() && m2.group(3) != null) {
+                    final List<Integer> finalServerIds = new ArrayList<>();
+                    System.out.println("Closest servers:");
+                    for (Server server : nativeBackend.getClosestServers(Integer.parseInt(m2.group(3)))) {
+                        System.out.println("  " + server);
+                        finalServerIds.add(server.getId());
+                    }
+                    System.out.println();
+                    serverIds = finalServerIds;
                 } else if (m2.matches()) {
                     final List<Integer> finalServerIds = new ArrayList<>();
                     Arrays.stream(m2.group(1).split(",")).forEach(s -> finalServerIds.add(Integer.parseInt(s)));
@@ -134,19 +336,9 @@ public class Main {
                 } else if (m3.matches()) {
                     log = new File(m3.group(1));
                 } else if (m4.matches()) {
-                    interval = Integer.parseInt(m4.group(1));
-                    switch (m4.group(2)) {
-                        case "d":
-                            interval *= 24;
-                        case "h":
-                            interval *= 60;
-                        case "m":
-                            interval *= 60;
-                        default:
-                            interval *= 1000;
-                    }
+                    interval = toMillis(Long.parseLong(m4.group(1)), m4.group(2));
                 } else if (m5.matches()) {
-                    DecimalFormatSymbols.getInstance().setDecimalSeparator(m5.group(1).charAt(0));
+                    Speedtest.setDecimalSeparator(m5.group(1).charAt(0));
                 } else if (m6.matches()) {
                     delimiter = m6.group(1).charAt(0);
                 }
@@ -154,47 +346,283 @@ public class Main {
 
         }
 
-        new Log(log, delimiter);
+        //the worker is started with the timeout, which is only known now
+        if (worker != null) worker.start();
 
-        //start the timer
-        Timer mainTimer = new Timer("Clock");
-        mainTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                runAllSpeedtests();
-            }
-        }, 2, interval);
+        if (dailyBudget > 0 || monthlyBudget > 0) {
+            budget = new Budget(log, dailyBudget, monthlyBudget);
+            System.out.println("Data budget: " + budget + " (stored in " + budget.getFile() + ")\n");
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::shutdown, "Shutdown"));
+        new Log(log, delimiter, fsync, fsyncInterval, timingColumns, budget != null);
+        if (binary != null) Log.getInstance().setStore(new ResultStore(binary));
+        if (rollup) Log.getInstance().addListener(new Rollup(Log.getInstance(), retention));
+        if (timingLog) {
+            timingsLog = new TimingsLog(Log.getInstance());
+            Log.getInstance().addListener(timingsLog);
+            System.out.println("Writing timings to " + timingsLog.getFile() + "\n");
+        }
+        if (collector != null) {
+            if (site == null) site = defaultSite();
+            agent = new Agent(Log.getInstance(), collector, site);
+            Log.getInstance().addListener(agent);
+            agent.start();
+            System.out.println("Sending results to " + agent.getUrl() + "\n");
+        }
+        if (gui != null) {
+            gui.show(Log.getInstance());
+        } else if (System.console() != null) {
+            ProgressMonitor.getInstance().addListener(new ConsoleStatus());
+        }
+        roundExecutor = new RoundExecutor(concurrency);
+        if (once) {
+            System.exit(runOnce());
+            return;
+        }
+        if (probePeriod > 0) startProbe(probePeriod, engine, nativeBackend, iperf3Host, iperf3Port);
+
+        //start the scheduler
+        if (jitter >= interval) {
+            System.out.println("Jitter must be less than the interval, using " + interval / 2000 + " seconds.");
+            jitter = interval / 2;
+        }
+        if (adaptiveThreshold > 0 && adaptiveThreshold < 1) {
+            //a sixth of the interval by default, but not less than a minute
+            if (burstInterval == 0) burstInterval = Math.max(interval / 6, MIN_BURST_INTERVAL);
+            burstInterval = Math.min(burstInterval, interval);
+            adaptive = new Adaptive(adaptiveThreshold, interval, burstInterval);
+            System.out.println("Testing every " + burstInterval / 1000 + " seconds while results are below "
+                                       + Math.round(adaptiveThreshold * 100) + "% of the usual rates.");
+        }
+        scheduler = new Scheduler(Main::runAllSpeedtests, interval, jitter, overlap, windows);
+        if (controlAddress != null) {
+            final Control control = new Control(scheduler);
+            Log.getInstance().addListener(control);
+            control.serve(controlAddress);
+        }
+        scheduler.start();
 
         //notify
-        System.out.println("Running Speedtest every " + interval / 1000 + " seconds.\n");
+        System.out.println("Running Speedtest " + scheduler + ".");
+        scheduler.getNextRun().ifPresent(next -> System.out.println("First speedtest at " + next.format(TIME) + ".\n"));
     }
 
 
+    /**
+     * Stop everything in order, the jvm would run separate shutdown hooks at the same time
+     * <p>
+     * A running test gets a moment to finish, then its result is written to the log and passed on
+     * to the listeners, before they and the log are closed. The output of the console is closed last.
+     */
+    private static void shutdown() {
+        try {
+            if (scheduler != null) scheduler.shutdown(5000);
+        } catch (InterruptedException ignored) {
+        }
+        if (worker != null) worker.stop();
+        if (probe != null) probe.stop();
+        final Log log = Log.getInstance();
+        if (log != null) {
+            try {
+                log.flush();
+            } catch (InterruptedException ignored) {
+            }
+            if (agent != null) agent.stop();
+            if (timingsLog != null) timingsLog.close();
+            log.close();
+        }
+        //last, so the spill file of the console also gets the output of the steps above
+        if (gui != null) gui.closeOutput();
+    }
+
+    /**
+     * @param value a time
+     * @param unit  s, m, h or d
+     * @return the time in milliseconds
+     */
+    static long toMillis(long value, String unit) {
+        switch (unit) {
+            case "d":
+                value *= 24;
+            case "h":
+                value *= 60;
+            case "m":
+                value *= 60;
+            default:
+                value *= 1000;
+        }
+        return value;
+    }
+
+    /**
+     * @return the host name, with characters that can't be used in site names replaced
+     */
+    private static String defaultSite() {
+        try {
+            final String host = InetAddress.getLocalHost().getHostName().replaceAll("[^A-Za-z0-9._-]", "-");
+            if (Collector.isValidSite(host)) return host;
+        } catch (IOException ignored) {
+        }
+        return "agent";
+    }
+
+    /**
+     * Start the latency probe against the servers the tests run against
+     */
+    private static void startProbe(long period, String engine, NativeBackend nativeBackend, String iperf3Host, int iperf3Port)
+            throws IOException {
+        final Callable<List<LatencyProbe.Target>> targets;
+        switch (engine) {
+            case "mock":
+                System.out.println("The latency probe needs a network engine, not starting it.\n");
+                return;
+            case "iperf3":
+                //iperf3 doesn't serve http, only the connection is timed
+                final LatencyProbe.Target target = new LatencyProbe.Target("iperf3", iperf3Host + ":" + iperf3Port, iperf3Host, iperf3Port, null);
+                targets = () -> Collections.singletonList(target);
+                break;
+            default:
+                targets = () -> {
+                    List<Server> servers = new ArrayList<>();
+                    if (!serverIds.isEmpty()) {
+                        for (int id : serverIds) servers.add(nativeBackend.getServer(id));
+                    } else if (Speedtest.getServerSelector() != null) {
+                        servers.add(nativeBackend.getServer(Speedtest.getServerSelector().best()));
+                    } else {
+                        servers.addAll(nativeBackend.getClosestServers(1));
+                    }
+                    List<LatencyProbe.Target> list = new ArrayList<>();
+                    for (Server server : servers) {
+                        list.add(LatencyProbe.Target.http(server.getSponsor(), server.getName(), server.getBaseUrl() + "latency.txt"));
+                    }
+                    return list;
+                };
+        }
+        probe = new LatencyProbe(Log.getInstance(), period, targets);
+        probe.start();
+        System.out.println("Probing the latency every " + period / 1000 + " seconds, writing summaries to " + probe.getFile() + "\n");
+    }
+
     /**
      * Runs all speedtest and logs the results to file
      */
     private static void runAllSpeedtests() {
-        final boolean empty = serverIds.isEmpty();
-        Iterator<Integer> i = serverIds.iterator();
-        while (empty || i.hasNext()) {
-            try {
-                int next = empty ? 0 : i.next();
-                if (empty) {
+        runSpeedtests(roundOfSpeedtests());
+    }
+
+    /**
+     * @return a test for every server or one test if the server is picked automatically
+     */
+    private static List<Speedtest> roundOfSpeedtests() {
+        List<Speedtest> tests = new ArrayList<>();
+        final List<Integer> serverIds = Main.serverIds;
+        if (serverIds.isEmpty()) tests.add(new Speedtest());
+        else serverIds.forEach(id -> tests.add(new Speedtest(id)));
+        return tests;
+    }
+
+    /**
+     * Runs one round, writes the log to disk and sends the results to the collector
+     *
+     * @return the exit code: 0 if all tests completed, 1 if none completed and 2 if some failed
+     */
+    private static int runOnce() {
+        final List<Speedtest> tests = roundOfSpeedtests();
+        final long firstTest = System.currentTimeMillis();
+        runSpeedtests(tests);
+        Log.getInstance().close();
+        if (agent != null) agent.flush();
+        final long completed = tests.stream().filter(Speedtest::completed).count();
+        //the jvm start is only looked up now, the management classes take a while to load
+        final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println("Started the first test " + (firstTest - jvmStart) + "ms after the start of the jvm ("
+                                   + (STARTED - jvmStart) + "ms until the program was loaded).");
+        System.out.println(completed + " of " + tests.size() + " tests completed.");
+        if (completed == tests.size()) return 0;
+        return completed == 0 ? 1 : 2;
+    }
+
+    /**
+     * Runs a test against one server and logs the result, on the thread of the scheduled tests
+     *
+     * @param id the server
+     */
+    static void runSpeedtest(int id) {
+        runSpeedtests(Collections.singletonList(new Speedtest(id)));
+    }
+
+    /**
+     * @return the servers that are tested in every round, empty if the server is picked automatically
+     */
+    static List<Integer> getServerIds() {
+        return serverIds;
+    }
+
+    /**
+     * Change the servers that are tested from the next round on
+     *
+     * @param ids the servers, empty to pick the server automatically
+     */
+    static void setServerIds(List<Integer> ids) {
+        serverIds = Collections.unmodifiableList(new ArrayList<>(ids));
+        System.out.println("Servers changed to " + (ids.isEmpty() ? "automatic selection" : ids) + ".\n");
+    }
+
+    /**
+     * Change the interval of the tests
+     *
+     * @param interval time between two rounds in milliseconds
+     */
+    static synchronized void setInterval(long interval) {
+        Main.interval = interval;
+        scheduler.setInterval(adaptive != null ? adaptive.setInterval(interval) : interval);
+        System.out.println("Interval changed to " + interval / 1000 + " seconds, next speedtest at "
+                                   + scheduler.getNextRun().map(next -> next.format(TIME)).orElse("-") + ".\n");
+    }
+
+    /**
+     * @return time between two rounds in milliseconds
+     */
+    static long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Runs the tests and logs the results to file
+     */
+    private static void runSpeedtests(List<Speedtest> tests) {
+        if (budget != null) {
+            final Scope scope = budget.scope(tests.size());
+            tests.forEach(test -> test.setScope(scope));
+        }
+        try {
+            RoundExecutor.Round round = roundExecutor.run(tests, test -> {
+                if (test.getServerID().isPresent()) {
+                    System.out.println("Running speedtest #" + test.getServerID().get() + "...");
+                    if (gui != null) gui.indicateSpeedtest("#" + test.getServerID().get());
+                } else {
                     System.out.println("Running speedtest...");
-                    if (gui) mainFrame.indicateSpeedtest();
+                    if (gui != null) gui.indicateSpeedtest();
+                }
+            }, test -> {
+                //before the test is logged, so the log contains the budget that is left
+                if (budget != null) budget.record(test);
+                if (metrics != null) metrics.record(test);
+                if (adaptive != null) adaptive.accept(test);
+                if (test.completed()) {
+                    Log.getInstance().log(test);
                 } else {
-                    System.out.println("Running speedtest #" + next + "...");
-                    if (gui) mainFrame.indicateSpeedtest("#" + next);
+                    //completed tests reach the timings log through the log, after they have been written
+                    if (timingsLog != null) timingsLog.accept(test);
+                    System.out.println("Speedtest " + test.getServerID().map(id -> "#" + id + " ").orElse("") + "failed!");
                 }
-                Speedtest speedtest = empty ? new Speedtest() : new Speedtest(next);
-                speedtest.run();
-                Log.getInstance().log(speedtest);
-                if (gui) mainFrame.endSpeedtest();
-                if (empty) return;
-            } catch (Exception e) {
-                e.printStackTrace();
-                if (empty) return;
-            }
+            });
+            System.out.println(round + "\n");
+            if (adaptive != null) scheduler.setInterval(adaptive.endRound());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (gui != null) gui.endSpeedtest();
         }
     }
 
@@ -202,28 +630,34 @@ public class Main {
      * Check if speedtest-cli is installed, and try to install using pip if not
      */
     private static void checkforSpeedtestCLI() {
+        final String installed = findSpeedtestCLI();
+        if (installed != null && installed.equals(readCliCheck())) {
+            System.out.println("Found speedtest cli!\n");
+            return;
+        }
+        final ProcessRunner cli = new ProcessRunner("speedtest-cli", CHECK_DEADLINE, 0, 0);
         try {
-            Runtime.getRuntime().exec("speedtest-cli --help");
+            cli.run("help", "speedtest-cli", "--help");
             System.out.println("Found speedtest cli!\n");
+            writeCliCheck(installed);
         } catch (IOException e) {
             if (e.getMessage().contains("error=2") || e.getMessage().contains("error=127")) {
                 System.out.println("Installing speedtest-cli:\n");
                 try {
                     System.out.println("x");
-                    Process p = Runtime.getRuntime().exec("pip install speedtest-cli");
-                    BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()));
-                    String line;
-                    while ((line = br.readLine()) != null) System.out.println("| " + line);
-                    br.close();
+                    final ProcessRunner.Result result = new ProcessRunner("pip", INSTALL_DEADLINE, 0, 0)
+                            .run("install", "pip", "install", "speedtest-cli");
+                    for (String line : result.getStdout().split("\r?\n")) System.out.println("| " + line);
                     System.out.println("x");
                     try {
-                        Runtime.getRuntime().exec("speedtest-cli --help");
+                        cli.run("help", "speedtest-cli", "--help");
                         System.out.println("\nFound speedtest-cli!\n");
+                        writeCliCheck(findSpeedtestCLI());
                     } catch (IOException e2) {
-                        throw new RuntimeException("speedtest-cli command not working", e);
+                        throw new RuntimeException("speedtest-cli command not working", e2);
                     }
                 } catch (IOException e1) {
-                    if (e.getMessage().contains("error=2") || e.getMessage().contains("error=127")) {
+                    if (e1.getMessage().contains("error=2") || e1.getMessage().contains("error=127")) {
                         System.out.println("Could not install speedtest-cli!\n\n" +
                                                    "MAKE SURE YOU HAVE INSTALLED PYTHON!\n" +
                                                    "www.python.org/downloads/");
@@ -232,4 +666,48 @@ public class Main {
             } else throw new RuntimeException("speedtest-cli command not working", e);
         }
     }
+
+    /**
+     * Look for speedtest-cli in the PATH without starting it
+     *
+     * @return path, size and modification time of the executable or null if it wasn't found
+     */
+    private static String findSpeedtestCLI() {
+        final String path = System.getenv("PATH");
+        if (path == null) return null;
+        for (String dir : path.split(Pattern.quote(File.pathSeparator))) {
+            for (String name : new String[]{"speedtest-cli", "speedtest-cli.exe", "speedtest-cli.bat", "speedtest-cli.cmd"}) {
+                final File file = new File(dir, name);
+                if (file.isFile() && file.canExecute()) {
+                    return file.getAbsolutePath() + File.pathSeparator + file.length() + File.pathSeparator + file.lastModified();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the speedtest-cli that was last found working or null
+     */
+    private static String readCliCheck() {
+        try {
+            return new String(Files.readAllBytes(CLI_CHECK.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remember that the speedtest-cli works, until it is replaced or updated
+     *
+     * @param installed see {@link #findSpeedtestCLI()}
+     */
+    private static void writeCliCheck(String installed) {
+        if (installed == null) return;
+        try {
+            Files.write(CLI_CHECK.toPath(), installed.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ignored) {
+            //checked again with the next start
+        }
+    }
 }
@@ -0,0 +1,299 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.ungefroren.AutoSpeedtest.backend.ProcessRunner;
+
+/**
+ * Collects metrics about the speedtests and serves them in the Prometheus text format
+ * <p>
+ * Results are recorded into lock-free accumulators (adders and immutable snapshots in volatile fields),
+ * so recording never waits for a scrape and a scrape never waits for a running test.
+ * All series are labeled with the server id that was given for the test or {@code auto}
+ * if the server was picked automatically.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Metrics {
+
+    private static final String PREFIX = "autospeedtest_";
+    private static final String TEXT_FORMAT = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String OPENMETRICS_FORMAT = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    /**
+     * Upper bounds of the ping histogram buckets in seconds
+     */
+    private static final double[] PING_BUCKETS = {.001, .002, .005, .01, .02, .05, .1, .2, .5, 1, 2, 5};
+    /**
+     * Upper bounds of the download and upload histogram buckets in bit/s
+     */
+    private static final double[] RATE_BUCKETS = {1e6, 2e6, 5e6, 1e7, 2e7, 5e7, 1e8, 2e8, 5e8, 1e9, 2e9, 5e9, 1e10};
+
+    private final Map<String, Server> servers = new ConcurrentHashMap<>();
+    private final long start = System.currentTimeMillis();
+    private HttpServer httpServer = null;
+
+    /**
+     * Record the outcome of a test
+     *
+     * @param speedtest a test that has been run, successful or not
+     */
+    public void record(Speedtest speedtest) {
+        final Server server = server(speedtest);
+        server.tests.increment();
+        if (!speedtest.completed()) {
+            server.failures.increment();
+            return;
+        }
+        server.latest = new Latest(speedtest);
+        server.ping.observe(speedtest.getPing() / 1000);
+        server.download.observe(speedtest.getDownload());
+        server.upload.observe(speedtest.getUpload());
+    }
+
+    private Server server(Speedtest speedtest) {
+        final String id = speedtest.getServerID().map(String::valueOf).orElse("auto");
+        final Server server = servers.get(id);
+        return server != null ? server : servers.computeIfAbsent(id, i -> new Server());
+    }
+
+    /**
+     * Serve the metrics at {@code /metrics}
+     *
+     * @param address address to listen on
+     * @throws IOException if the address can't be bound
+     */
+    public synchronized void serve(InetSocketAddress address) throws IOException {
+        if (httpServer != null) httpServer.stop(0);
+        httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/metrics", this::handle);
+        httpServer.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Metrics");
+            t.setDaemon(true);
+            return t;
+        }));
+        httpServer.start();
+        System.out.println("Serving metrics at http://" + address.getHostString() + ":"
+                                   + httpServer.getAddress().getPort() + "/metrics\n");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final String accept = exchange.getRequestHeaders().getFirst("Accept");
+            final boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+            final byte[] body = format(openMetrics).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", openMetrics ? OPENMETRICS_FORMAT : TEXT_FORMAT);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param openMetrics if the OpenMetrics format should be used instead of the Prometheus text format
+     * @return all metrics in the exposition format
+     */
+    public String format(boolean openMetrics) {
+        //sorted copy, so the order of the series is stable between scrapes
+        final Map<String, Server> servers = new TreeMap<>(this.servers);
+        final StringBuilder out = new StringBuilder(1024 + servers.size() * 4096);
+
+        family(out, openMetrics, "start_time_seconds", "gauge", "Time at which the program was started");
+        sample(out, "start_time_seconds", "", start / 1000.0);
+
+        family(out, openMetrics, "tests", "counter", "Number of speedtests that have been run");
+        servers.forEach((id, s) -> sample(out, "tests_total", label(id), s.tests.sum()));
+        family(out, openMetrics, "test_failures", "counter", "Number of speedtests that failed");
+        servers.forEach((id, s) -> sample(out, "test_failures_total", label(id), s.failures.sum()));
+        family(out, openMetrics, "process_failures", "counter", "Number of runs of external programs that failed, retries included");
+        for (ProcessRunner runner : ProcessRunner.getRunners()) {
+            new TreeMap<>(runner.getFailures()).forEach((key, failures) -> sample(
+                    out, "process_failures_total", "program=\"" + escape(runner.getName()) + "\",key=\"" + escape(key) + "\"", failures));
+        }
+
+        family(out, openMetrics, "server_info", "gauge", "Name and location of the server that was tested last");
+        servers.forEach((id, s) -> {
+            final Latest latest = s.latest;
+            if (latest == null) return;
+            sample(out, "server_info", label(id) + ",name=\"" + escape(latest.name)
+                    + "\",location=\"" + escape(latest.location) + "\"", 1);
+        });
+        family(out, openMetrics, "last_success_timestamp_seconds", "gauge", "Time of the last successful speedtest");
+        servers.forEach((id, s) -> {
+            final Latest latest = s.latest;
+            if (latest != null) sample(out, "last_success_timestamp_seconds", label(id), latest.timestamp);
+        });
+        family(out, openMetrics, "ping_seconds_last", "gauge", "Ping of the last successful speedtest");
+        servers.forEach((id, s) -> {
+            final Latest latest = s.latest;
+            if (latest != null) sample(out, "ping_seconds_last", label(id), latest.ping);
+        });
+        family(out, openMetrics, "download_bits_per_second_last", "gauge", "Download rate of the last successful speedtest");
+        servers.forEach((id, s) -> {
+            final Latest latest = s.latest;
+            if (latest != null) sample(out, "download_bits_per_second_last", label(id), latest.download);
+        });
+        family(out, openMetrics, "upload_bits_per_second_last", "gauge", "Upload rate of the last successful speedtest");
+        servers.forEach((id, s) -> {
+            final Latest latest = s.latest;
+            if (latest != null) sample(out, "upload_bits_per_second_last", label(id), latest.upload);
+        });
+
+        family(out, openMetrics, "ping_seconds", "histogram", "Ping of all successful speedtests");
+        servers.forEach((id, s) -> s.ping.format(out, "ping_seconds", label(id)));
+        family(out, openMetrics, "download_bits_per_second", "histogram", "Download rate of all successful speedtests");
+        servers.forEach((id, s) -> s.download.format(out, "download_bits_per_second", label(id)));
+        family(out, openMetrics, "upload_bits_per_second", "histogram", "Upload rate of all successful speedtests");
+        servers.forEach((id, s) -> s.upload.format(out, "upload_bits_per_second", label(id)));
+
+        if (openMetrics) out.append("# EOF\n");
+        return out.toString();
+    }
+
+    private static void family(StringBuilder out, boolean openMetrics, String name, String type, String help) {
+        //the prometheus text format names counters after their samples, openmetrics without the _total suffix
+        if (!openMetrics && type.equals("counter")) name += "_total";
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(PREFIX).append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(number(value)).append('\n');
+    }
+
+    private static String label(String id) {
+        return "server=\"" + escape(id) + "\"";
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "";
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return String.valueOf((long) value);
+        return String.valueOf(value);
+    }
+
+    /**
+     * Counters and values of one server
+     */
+    private static class Server {
+
+        private final LongAdder tests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final Buckets ping = new Buckets(PING_BUCKETS);
+        private final Buckets download = new Buckets(RATE_BUCKETS);
+        private final Buckets upload = new Buckets(RATE_BUCKETS);
+        private volatile Latest latest = null;
+    }
+
+    /**
+     * Results of the last successful test, replaced as a whole so a scrape never sees a mix of two tests
+     */
+    private static class Latest {
+
+        private final double ping;
+        private final double download;
+        private final double upload;
+        private final double timestamp;
+        private final String name;
+        private final String location;
+
+        Latest(Speedtest speedtest) {
+            ping = speedtest.getPing() / 1000;
+            download = speedtest.getDownload();
+            upload = speedtest.getUpload();
+            timestamp = speedtest.getTimestamp().toInstant().toEpochMilli() / 1000.0;
+            name = speedtest.getServerName();
+            location = speedtest.getLocation();
+        }
+    }
+
+    /**
+     * Histogram with fixed buckets, the counts are cumulated when formatted
+     */
+    private static class Buckets {
+
+        private final double[] bounds;
+        private final LongAdder[] counts;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Buckets(double[] bounds) {
+            this.bounds = bounds;
+            counts = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+        }
+
+        void observe(double value) {
+            //not measured
+            if (Double.isNaN(value)) return;
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) i++;
+            counts[i].increment();
+            sum.add(value);
+        }
+
+        void format(StringBuilder out, String name, String labels) {
+            long cumulated = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulated += counts[i].sum();
+                final double bound = i < bounds.length ? bounds[i] : Double.POSITIVE_INFINITY;
+                sample(out, name + "_bucket", labels + ",le=\"" + number(bound) + "\"", cumulated);
+            }
+            sample(out, name + "_sum", labels, sum.sum());
+            sample(out, name + "_count", labels, cumulated);
+        }
+    }
+}
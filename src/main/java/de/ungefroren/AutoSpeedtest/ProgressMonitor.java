@@ -0,0 +1,235 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.backend.Progress;
+
+/**
+ * Publishes the progress of running speedtests
+ * <p>
+ * The progress counters of all running tests are sampled at a fixed rate on a separate thread,
+ * so listeners never slow down a measurement. Listeners are called from that thread.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ProgressMonitor {
+
+    private static final long SAMPLE_INTERVAL = 200;
+
+    private static final ProgressMonitor instance = new ProgressMonitor();
+
+    private final List<Consumer<Event>> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Running tests and the sample that was published last
+     */
+    private final Map<Speedtest, Sample> running = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Progress");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> sampling = null;
+
+    private ProgressMonitor() {
+    }
+
+    public static ProgressMonitor getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param listener called with the progress of every running test at a fixed rate
+     */
+    public void addListener(Consumer<Event> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Start publishing the progress of a test
+     *
+     * @param speedtest the test
+     */
+    synchronized void track(Speedtest speedtest) {
+        running.put(speedtest, new Sample(speedtest.getProgress()));
+        if (sampling == null && !listeners.isEmpty()) {
+            sampling = sampler.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop publishing the progress of a test and publish that it is done
+     *
+     * @param speedtest the test
+     */
+    synchronized void untrack(Speedtest speedtest) {
+        if (running.remove(speedtest) == null) return;
+        publish(new Event(speedtest, Progress.Phase.DONE, 0, 0, 1));
+        if (running.isEmpty() && sampling != null) {
+            sampling.cancel(false);
+            sampling = null;
+        }
+    }
+
+    private synchronized void sample() {
+        final long now = System.nanoTime();
+        for (Map.Entry<Speedtest, Sample> entry : running.entrySet()) {
+            final Progress progress = entry.getKey().getProgress();
+            final Sample last = entry.getValue();
+            final Progress.Phase phase = progress.getPhase();
+            final long bytes = progress.getBytes();
+            final long phaseStart = progress.getPhaseStart();
+            //rate since the last sample, or since the start of the phase if the phase changed
+            double rate = 0;
+            if (phase == last.phase && phaseStart == last.phaseStart) {
+                if (now > last.time) rate = (bytes - last.bytes) * 8 * 1e9 / (now - last.time);
+            } else if (now > phaseStart) {
+                rate = bytes * 8 * 1e9 / (now - phaseStart);
+            }
+            entry.setValue(new Sample(phase, phaseStart, bytes, now));
+            publish(new Event(entry.getKey(), phase, bytes, Math.max(rate, 0), fraction(progress, now)));
+        }
+    }
+
+    /**
+     * @return how much of the test is done from 0 to 1 or -1 if unknown,
+     * download and upload count half each
+     */
+    private static double fraction(Progress progress, long now) {
+        final long expected = progress.getExpected();
+        final Progress.Phase phase = progress.getPhase();
+        if (expected <= 0 || (phase != Progress.Phase.DOWNLOAD && phase != Progress.Phase.UPLOAD)) return -1;
+        final double done = Math.min(1, (double) (now - progress.getPhaseStart()) / expected);
+        return (phase == Progress.Phase.DOWNLOAD ? 0 : 0.5) + done / 2;
+    }
+
+    private void publish(Event event) {
+        for (Consumer<Event> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static class Sample {
+
+        private final Progress.Phase phase;
+        private final long phaseStart;
+        private final long bytes;
+        private final long time;
+
+        Sample(Progress progress) {
+            this(progress.getPhase(), progress.getPhaseStart(), progress.getBytes(), System.nanoTime());
+        }
+
+        Sample(Progress.Phase phase, long phaseStart, long bytes, long time) {
+            this.phase = phase;
+            this.phaseStart = phaseStart;
+            this.bytes = bytes;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Progress of a running test
+     */
+    public static class Event {
+
+        private final Speedtest speedtest;
+        private final Progress.Phase phase;
+        private final long bytes;
+        private final double rate;
+        private final double fraction;
+
+        private Event(Speedtest speedtest, Progress.Phase phase, long bytes, double rate, double fraction) {
+            this.speedtest = speedtest;
+            this.phase = phase;
+            this.bytes = bytes;
+            this.rate = rate;
+            this.fraction = fraction;
+        }
+
+        public Speedtest getSpeedtest() {
+            return speedtest;
+        }
+
+        public Progress.Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return bytes transferred in the current phase
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return current transfer rate in bit/s
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * @return how much of the test is done from 0 to 1 or -1 if unknown
+         */
+        public double getFraction() {
+            return fraction;
+        }
+
+        @Override
+        public String toString() {
+            final String server = speedtest.getServerID().map(id -> "#" + id + " ").orElse("");
+            switch (phase) {
+                case DOWNLOAD:
+                case UPLOAD:
+                    final String name = phase == Progress.Phase.DOWNLOAD ? "Download" : "Upload";
+                    if (bytes == 0 && rate == 0) return server + name + "...";
+                    return String.format("%s%s %.1f Mbit/s (%.1f MB)", server, name, rate / 1e6, bytes / 1e6);
+                case LATENCY:
+                    return server + "Ping...";
+                case WAITING:
+                    return server + "Waiting...";
+                case BANDWIDTH:
+                    return server + "Download and upload...";
+                default:
+                    return server + "Done";
+            }
+        }
+    }
+}
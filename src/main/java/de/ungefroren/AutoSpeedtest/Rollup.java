@@ -0,0 +1,255 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.stats.Histogram;
+
+/**
+ * Maintains hourly and daily summaries of the results in the log and removes old results from the log
+ * <p>
+ * For every server and hour (or day) the count, min, max, mean, p5, p50 and p95 of ping, download and upload
+ * are written to {@code <log>-hourly.csv} and {@code <log>-daily.csv} once the hour (or day) is over.
+ * Results are processed on a background thread as they are logged.
+ * Summaries that haven't been written when the program stops are rebuilt from the log on the next start.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Rollup implements Consumer<Speedtest> {
+
+    /**
+     * Time after the end of an hour (or day) during which late results are still accepted
+     */
+    private static final long GRACE_MINUTES = 10;
+    private static final long COMPACTION_INTERVAL_HOURS = 24;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] VALUES = {"Ping", "Download", "Upload"};
+    private static final String[] UNITS = {"ms", "Mbit/s", "Mbit/s"};
+
+    private final Log log;
+    private final long retention;
+    private final Level hourly;
+    private final Level daily;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Rollup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private LocalDateTime lastCompaction = null;
+
+    /**
+     * Create the rollup files if they don't exist, add all results from the log that are missing in them
+     * and remove results that are older than the retention from the log
+     *
+     * @param log       the log to summarize
+     * @param retention time in milliseconds after which results are removed from the log, 0 to keep all results
+     * @throws IOException if the log or the rollup files could not be read
+     */
+    public Rollup(Log log, long retention) throws IOException {
+        this.log = log;
+        this.retention = retention;
+        final File file = log.getFile().getAbsoluteFile();
+        String name = file.getName();
+        if (name.toLowerCase().endsWith(".csv")) name = name.substring(0, name.length() - 4);
+        hourly = new Level(ChronoUnit.HOURS, new File(file.getParentFile(), name + "-hourly.csv"));
+        daily = new Level(ChronoUnit.DAYS, new File(file.getParentFile(), name + "-daily.csv"));
+        recover();
+        compact();
+    }
+
+    /**
+     * Add a result to the summaries, this doesn't block
+     *
+     * @param speedtest a completed speedtest
+     */
+    @Override
+    public void accept(Speedtest speedtest) {
+        executor.submit(() -> {
+            try {
+                add(speedtest);
+                if (lastCompaction == null
+                        || lastCompaction.plusHours(COMPACTION_INTERVAL_HOURS).isBefore(LocalDateTime.now())) {
+                    compact();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void add(Speedtest speedtest) throws IOException {
+        final LocalDateTime time = speedtest.getTimestamp().withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        hourly.add(time, speedtest);
+        daily.add(time, speedtest);
+    }
+
+    /**
+     * Add the results from the log that have not been summarized yet
+     */
+    private void recover() throws IOException {
+        if (!log.getFile().exists()) return;
+        final char decimalSeparator = Speedtest.getDecimalSeparator();
+        try (BufferedReader reader = Files.newBufferedReader(log.getFile().toPath(), Charset.defaultCharset())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    add(Speedtest.fromCsv(line, log.getDelimiter(), decimalSeparator));
+                } catch (IllegalArgumentException ignored) {
+                    //header or broken line
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove results that are older than the retention from the log
+     */
+    private void compact() throws IOException {
+        lastCompaction = LocalDateTime.now();
+        if (retention <= 0) return;
+        final ZonedDateTime cutoff = ZonedDateTime.now().minusNanos(retention * 1000000);
+        final char decimalSeparator = Speedtest.getDecimalSeparator();
+        int removed = log.compact(line -> {
+            try {
+                return !Speedtest.fromCsv(line, log.getDelimiter(), decimalSeparator).getTimestamp().isBefore(cutoff);
+            } catch (IllegalArgumentException e) {
+                return true;
+            }
+        });
+        if (removed > 0) System.out.println("Removed " + removed + " results older than " + cutoff.format(TIME) + " from the log.");
+    }
+
+    /**
+     * Summaries for one interval length
+     */
+    private class Level {
+
+        private final ChronoUnit unit;
+        private final File file;
+        private final TreeMap<LocalDateTime, Map<String, Histogram[]>> open = new TreeMap<>();
+        /**
+         * End of the last summary that has been written, results before it are ignored
+         */
+        private LocalDateTime closedUntil = null;
+
+        Level(ChronoUnit unit, File file) throws IOException {
+            this.unit = unit;
+            this.file = file;
+            if (!file.exists()) {
+                final String delimiter = String.valueOf(log.getDelimiter());
+                StringJoiner header = new StringJoiner(delimiter);
+                header.add("Time").add("Server").add("Count");
+                for (int i = 0; i < VALUES.length; i++) {
+                    for (String aggregate : new String[]{"min", "max", "mean", "p5", "p50", "p95"}) {
+                        header.add(VALUES[i] + " " + aggregate + " (" + UNITS[i] + ")");
+                    }
+                }
+                BufferedWriter bw = new BufferedWriter(new FileWriter(file, true));
+                bw.write(header.toString());
+                bw.close();
+            } else {
+                //the last summary in the file marks the time up to which the results have been summarized
+                try (BufferedReader reader = Files.newBufferedReader(file.toPath(), Charset.defaultCharset())) {
+                    String line, last = null;
+                    while ((line = reader.readLine()) != null) if (!line.isEmpty()) last = line;
+                    if (last != null && last.length() >= 19) {
+                        try {
+                            closedUntil = LocalDateTime.parse(last.substring(0, 19), TIME).plus(1, unit);
+                        } catch (RuntimeException ignored) {
+                            //only the header
+                        }
+                    }
+                }
+            }
+        }
+
+        void add(LocalDateTime time, Speedtest speedtest) throws IOException {
+            final LocalDateTime bucket = time.truncatedTo(unit);
+            if (closedUntil != null && bucket.isBefore(closedUntil)) return;
+            Histogram[] histograms = open.computeIfAbsent(bucket, b -> new TreeMap<>())
+                    .computeIfAbsent(speedtest.getServerName(),
+                                     s -> new Histogram[]{new Histogram(), new Histogram(), new Histogram()});
+            histograms[0].record(speedtest.getPing());
+            histograms[1].record(speedtest.getDownload() / 1000000);
+            histograms[2].record(speedtest.getUpload() / 1000000);
+            //write all buckets that are over
+            Iterator<Map.Entry<LocalDateTime, Map<String, Histogram[]>>> i = open.entrySet().iterator();
+            while (i.hasNext()) {
+                Map.Entry<LocalDateTime, Map<String, Histogram[]>> entry = i.next();
+                final LocalDateTime end = entry.getKey().plus(1, unit);
+                if (!end.plusMinutes(GRACE_MINUTES).isBefore(time)) break;
+                write(entry.getKey(), entry.getValue());
+                closedUntil = end;
+                i.remove();
+            }
+        }
+
+        private void write(LocalDateTime bucket, Map<String, Histogram[]> servers) throws IOException {
+            final String delimiter = String.valueOf(log.getDelimiter());
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+            symbols.setDecimalSeparator(Speedtest.getDecimalSeparator());
+            DecimalFormat format = new DecimalFormat("0.000", symbols);
+            BufferedWriter bw = new BufferedWriter(new FileWriter(file, true));
+            for (Map.Entry<String, Histogram[]> server : servers.entrySet()) {
+                StringJoiner row = new StringJoiner(delimiter);
+                row.add(bucket.format(TIME)).add(server.getKey()).add(String.valueOf(server.getValue()[0].getCount()));
+                for (Histogram h : server.getValue()) {
+                    row.add(format.format(h.getMin()))
+                            .add(format.format(h.getMax()))
+                            .add(format.format(h.getMean()))
+                            .add(format.format(h.percentile(5)))
+                            .add(format.format(h.percentile(50)))
+                            .add(format.format(h.percentile(95)));
+                }
+                bw.newLine();
+                bw.write(row.toString());
+            }
+            bw.close();
+        }
+    }
+}
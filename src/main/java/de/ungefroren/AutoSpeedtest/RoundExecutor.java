@@ -0,0 +1,167 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs a round of speedtests against multiple servers
+ * <p>
+ * The latency phases of all tests run in parallel, while only a limited number of
+ * bandwidth phases (download and upload) may run at the same time, so the tests don't distort each other.
+ * No bandwidth phase starts before all latency phases are done, so no ping is measured under load.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class RoundExecutor {
+
+    private final ExecutorService pool;
+    private final Semaphore bandwidth;
+    private final int concurrency;
+
+    /**
+     * @param concurrency number of bandwidth phases that may run at the same time
+     */
+    public RoundExecutor(int concurrency) {
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be at least 1");
+        this.concurrency = concurrency;
+        this.bandwidth = new Semaphore(concurrency, true);
+        final AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "Speedtest-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Run all tests and wait until they are done
+     *
+     * @param tests   the tests to run
+     * @param onStart called when the bandwidth phase of a test starts
+     * @param onDone  called when a test is done, from the thread that ran the test
+     * @return statistics about the round
+     * @throws InterruptedException if interrupted while waiting for the tests
+     */
+    public Round run(List<Speedtest> tests, Consumer<Speedtest> onStart, Consumer<Speedtest> onDone)
+            throws InterruptedException {
+        final long start = System.nanoTime();
+        final AtomicLong busy = new AtomicLong();
+        final CountDownLatch latencies = new CountDownLatch(tests.size());
+        List<Future<?>> futures = new ArrayList<>(tests.size());
+        for (Speedtest test : tests) {
+            futures.add(pool.submit(() -> {
+                long testStart = System.nanoTime();
+                try {
+                    test.runLatencyPhase();
+                } finally {
+                    latencies.countDown();
+                }
+                long latencyDone = System.nanoTime();
+                try {
+                    latencies.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                bandwidth.acquireUninterruptibly();
+                long bandwidthStart = System.nanoTime();
+                try {
+                    onStart.accept(test);
+                    test.runBandwidthPhase();
+                } finally {
+                    bandwidth.release();
+                }
+                //time the test would have taken without waiting for other tests
+                busy.addAndGet(latencyDone - testStart + System.nanoTime() - bandwidthStart);
+                onDone.accept(test);
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+            }
+        }
+        return new Round(tests.size(), System.nanoTime() - start, busy.get());
+    }
+
+    /**
+     * Statistics of a round of tests
+     */
+    public static class Round {
+
+        private final int tests;
+        private final long wallTime;
+        private final long sequentialTime;
+
+        private Round(int tests, long wallTime, long sequentialTime) {
+            this.tests = tests;
+            this.wallTime = wallTime;
+            this.sequentialTime = sequentialTime;
+        }
+
+        public int getTests() {
+            return tests;
+        }
+
+        /**
+         * @return time from start to end of the round in nanoseconds
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * @return sum of the time each test spent running in nanoseconds,
+         * an estimate for how long the round would have taken if the tests ran one after another
+         */
+        public long getSequentialTime() {
+            return sequentialTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Round of %d test%s finished in %.1fs (%.1fs if run one after another)",
+                                 tests, tests == 1 ? "" : "s", wallTime / 1e9, sequentialTime / 1e9);
+        }
+    }
+}
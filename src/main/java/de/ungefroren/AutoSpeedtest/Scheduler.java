@@ -0,0 +1,412 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a task at a fixed interval
+ * <p>
+ * The start times are computed from a fixed grid (the start of the scheduler or the start of a window),
+ * so they don't drift, no matter how long the task takes or how late the clock thread wakes up.
+ * Every start is delayed by a random time up to the jitter, so many instances that were started at the same time
+ * don't test the same server at the same second.
+ * The task runs on its own thread, a start that is due while the task is still running is handled according to the
+ * {@link Overlap} policy instead of piling up.
+ * Runs can also be triggered on demand with {@link #trigger()}, triggers that arrive before the next run
+ * has started are merged into that run.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Scheduler {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Runnable task;
+    private final long interval;
+    private final long jitter;
+    private final Overlap overlap;
+    private final List<Window> windows;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ScheduledExecutorService clock;
+    private final ExecutorService worker;
+
+    private long current;
+    private long anchor = 0;
+    private long lastSlot = 0;
+    private long nextRun = 0;
+    private int generation = 0;
+    private boolean running = false;
+    private boolean pending = false;
+    /**
+     * The pending run has been triggered on demand, so it isn't merged with the next scheduled one
+     */
+    private boolean triggered = false;
+    private boolean shutdown = false;
+    private long runs = 0;
+
+    /**
+     * @param task     the task to run
+     * @param interval time between two starts in milliseconds
+     * @param jitter   maximum random delay of every start in milliseconds, must be less than the interval
+     * @param overlap  what to do if a start is due while the task is still running
+     * @param windows  times of the day in which the task runs, the task runs all day if empty
+     */
+    public Scheduler(Runnable task, long interval, long jitter, Overlap overlap, List<Window> windows) {
+        if (interval < 1) throw new IllegalArgumentException("interval must be at least 1ms");
+        if (jitter < 0 || jitter >= interval) throw new IllegalArgumentException("jitter must be less than the interval");
+        this.task = task;
+        this.interval = interval;
+        this.current = interval;
+        this.jitter = jitter;
+        this.overlap = overlap;
+        this.windows = Collections.unmodifiableList(new ArrayList<>(windows));
+        //not a daemon thread, it keeps the program running
+        this.clock = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "Clock"));
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Round");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start the schedule, the first run is due immediately if there are no windows
+     * or at the next start of a window
+     */
+    public synchronized void start() {
+        if (anchor != 0) throw new IllegalStateException("already started");
+        anchor = System.currentTimeMillis();
+        schedule(windows.isEmpty() ? anchor : nextSlot(anchor - 1));
+    }
+
+    /**
+     * @return the time of the next run or nothing if the scheduler has been shut down,
+     * if a run is queued behind the running one it is due now
+     */
+    public synchronized Optional<ZonedDateTime> getNextRun() {
+        if (shutdown || anchor == 0) return Optional.empty();
+        final long next = pending ? System.currentTimeMillis() : nextRun;
+        return Optional.of(Instant.ofEpochMilli(next).atZone(zone));
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Run the task as soon as possible, without changing the schedule
+     * <p>
+     * If the task is running, the run is queued behind it. All triggers until the run starts get the same run.
+     *
+     * @return number of the run that will include the trigger, see {@link #getRuns()}, or -1 if the scheduler has been shut down
+     */
+    public synchronized long trigger() {
+        if (shutdown) return -1;
+        if (!running) {
+            running = true;
+            worker.execute(this::runLoop);
+        } else if (!pending) {
+            System.out.println("Speedtest requested, running it after the current one.\n");
+        }
+        //cleared as soon as the run starts, so triggers until then are merged
+        pending = true;
+        triggered = true;
+        return runs + 1;
+    }
+
+    /**
+     * Run another task on the thread of the scheduled runs, so it never runs at the same time as them
+     *
+     * @param task the task, it runs after the current run
+     */
+    public void execute(Runnable task) {
+        worker.execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * @return number of runs that have started
+     */
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return if the task is running or about to run
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the interval that is currently used, differs from {@link #getInterval()} after {@link #setInterval(long)}
+     */
+    public synchronized long getCurrentInterval() {
+        return current;
+    }
+
+    /**
+     * Change the interval until it is changed again
+     * <p>
+     * The grid continues from the start of the last run with the new interval,
+     * so the next run is due one new interval after it if that time hasn't passed yet.
+     *
+     * @param interval time between two starts in milliseconds
+     */
+    public synchronized void setInterval(long interval) {
+        if (interval < 1) throw new IllegalArgumentException("interval must be at least 1ms");
+        if (interval == current || shutdown) return;
+        current = interval;
+        if (anchor == 0) return;
+        if (lastSlot != 0) anchor = lastSlot;
+        //the run that is already scheduled is dropped when it fires
+        schedule(nextSlot(Math.max(lastSlot, System.currentTimeMillis())));
+    }
+
+    public long getJitter() {
+        return jitter;
+    }
+
+    public Overlap getOverlap() {
+        return overlap;
+    }
+
+    public List<Window> getWindows() {
+        return windows;
+    }
+
+    /**
+     * Stop scheduling new runs and wait for a running task
+     *
+     * @param timeout time in milliseconds to wait for the running task before it is interrupted
+     * @return true if the task finished within the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout) throws InterruptedException {
+        synchronized (this) {
+            shutdown = true;
+            pending = false;
+            triggered = false;
+        }
+        clock.shutdownNow();
+        worker.shutdown();
+        if (worker.awaitTermination(timeout, TimeUnit.MILLISECONDS)) return true;
+        worker.shutdownNow();
+        return false;
+    }
+
+    /**
+     * @param slot start time of the next run without jitter
+     */
+    private void schedule(long slot) {
+        final long jitter = Math.min(this.jitter, current - 1);
+        nextRun = slot + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+        final int generation = ++this.generation;
+        //the delay is computed from the wall clock every time, so errors of the clock thread don't add up
+        clock.schedule(() -> fire(generation, slot), Math.max(0, nextRun - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void fire(int generation, long slot) {
+        if (shutdown || generation != this.generation) return;
+        lastSlot = slot;
+        if (!running) {
+            running = true;
+            worker.execute(this::runLoop);
+        } else {
+            switch (overlap) {
+                case SKIP:
+                    System.out.println("Skipping the run of " + format(slot) + ", the last one is still running.\n");
+                    break;
+                case COALESCE:
+                case QUEUE_ONE:
+                    if (pending) System.out.println("Run of " + format(slot) + " merged with the queued run.\n");
+                    pending = true;
+                    break;
+            }
+        }
+        //after a suspend the missed slots are not run one after another
+        schedule(nextSlot(Math.max(slot, System.currentTimeMillis())));
+    }
+
+    private void runLoop() {
+        while (true) {
+            synchronized (this) {
+                if (shutdown) {
+                    running = false;
+                    return;
+                }
+                pending = false;
+                triggered = false;
+                runs++;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+            synchronized (this) {
+                if (pending && !triggered && overlap == Overlap.COALESCE && nextRun - System.currentTimeMillis() < current / 2) {
+                    System.out.println("Missed run merged with the next one.");
+                    pending = false;
+                }
+                if (!pending || shutdown) {
+                    running = false;
+                    if (!shutdown) System.out.println("Next speedtest at " + format(nextRun) + ".\n");
+                    return;
+                }
+                if (!triggered) System.out.println("Running the missed speedtest now.\n");
+            }
+        }
+    }
+
+    /**
+     * @param after a time in milliseconds
+     * @return the first slot of the grid after the given time
+     */
+    long nextSlot(long after) {
+        if (windows.isEmpty()) return anchor + ((after - anchor) / current + 1) * current;
+        long best = Long.MAX_VALUE;
+        final LocalDate day = Instant.ofEpochMilli(after).atZone(zone).toLocalDate();
+        //windows may cross midnight, so the one that started yesterday is checked too
+        for (LocalDate date = day.minusDays(1); date.isBefore(day.plusDays(2)); date = date.plusDays(1)) {
+            for (Window window : windows) {
+                final ZonedDateTime start = date.atTime(window.getFrom()).atZone(zone);
+                final ZonedDateTime end = (window.getTo().isAfter(window.getFrom()) ? date : date.plusDays(1))
+                        .atTime(window.getTo()).atZone(zone);
+                final long from = start.toInstant().toEpochMilli();
+                final long slot = after < from ? from : from + ((after - from) / current + 1) * current;
+                if (slot < end.toInstant().toEpochMilli() && slot < best) best = slot;
+            }
+        }
+        return best;
+    }
+
+    private String format(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(zone).format(TIME);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder description = new StringBuilder("every ").append(interval / 1000).append(" seconds");
+        if (!windows.isEmpty()) {
+            description.append(" from ");
+            for (int i = 0; i < windows.size(); i++) {
+                if (i > 0) description.append(", ");
+                description.append(windows.get(i));
+            }
+        }
+        if (jitter > 0) description.append(" (up to ").append(jitter / 1000).append(" seconds later)");
+        return description.toString();
+    }
+
+    public enum Overlap {
+        /**
+         * Starts that are due while the task is running are dropped
+         */
+        SKIP,
+        /**
+         * One run is queued while the task is running and starts when it is done,
+         * unless the next regular run is due within half an interval anyway
+         */
+        COALESCE,
+        /**
+         * One run is queued while the task is running and always starts when it is done
+         */
+        QUEUE_ONE
+    }
+
+    /**
+     * Time of the day in which the task runs, e.g. from 18:00 to 23:00, the window may cross midnight
+     */
+    public static class Window {
+
+        private static final Pattern PATTERN = Pattern.compile("(\\d{1,2}):(\\d{2})-(\\d{1,2}):(\\d{2})");
+
+        private final LocalTime from;
+        private final LocalTime to;
+
+        /**
+         * @param from start of the window, the first run of the window is at this time
+         * @param to   end of the window (exclusive), the same time as {@code from} for a window of a whole day
+         */
+        public Window(LocalTime from, LocalTime to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * @param window a window in the format {@code HH:mm-HH:mm}
+         * @return the window
+         * @throws IllegalArgumentException if the window is not in the format {@code HH:mm-HH:mm}
+         */
+        public static Window parse(String window) throws IllegalArgumentException {
+            final Matcher m = PATTERN.matcher(window.trim());
+            if (!m.matches()) throw new IllegalArgumentException("Not a time window: " + window);
+            try {
+                return new Window(LocalTime.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))),
+                                  LocalTime.of(Integer.parseInt(m.group(3)) % 24, Integer.parseInt(m.group(4))));
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Not a time window: " + window, e);
+            }
+        }
+
+        public LocalTime getFrom() {
+            return from;
+        }
+
+        public LocalTime getTo() {
+            return to;
+        }
+
+        @Override
+        public String toString() {
+            return from + "-" + to;
+        }
+    }
+}
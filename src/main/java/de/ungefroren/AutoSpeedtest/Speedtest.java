@@ -23,17 +23,29 @@
  */
 package de.ungefroren.AutoSpeedtest;
 
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
 
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
+import de.ungefroren.AutoSpeedtest.backend.CliBackend;
+import de.ungefroren.AutoSpeedtest.backend.FallbackBackend;
+import de.ungefroren.AutoSpeedtest.backend.JsonFields;
+import de.ungefroren.AutoSpeedtest.backend.Measurement;
+import de.ungefroren.AutoSpeedtest.backend.MeasurementBackend;
+import de.ungefroren.AutoSpeedtest.backend.NativeBackend;
+import de.ungefroren.AutoSpeedtest.backend.Progress;
+import de.ungefroren.AutoSpeedtest.backend.Scope;
+import de.ungefroren.AutoSpeedtest.backend.ServerSelector;
+import de.ungefroren.AutoSpeedtest.backend.Timings;
 
 /**
  * Class representing a speedtest that can be run and whose results can be logged
@@ -44,11 +56,18 @@ import org.json.simple.parser.JSONParser;
  */
 public class Speedtest implements Runnable {
 
-    private static final String COMMAND = "speedtest-cli --json --server %d --secure --timeout %d";
-    private static final String COMMAND_UNSPECIFIC_SERVER = "speedtest-cli --json --secure --timeout %d";
-
     static int TIMEOUT = Main.DEFAULT_TIMEOUT;
 
+    private static volatile MeasurementBackend backend = new FallbackBackend(new NativeBackend(), new CliBackend());
+
+    private static volatile ServerSelector serverSelector = null;
+
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter JSON_TIME = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private static final JsonFields JSON_FIELDS = new JsonFields("time", "ping", "download", "upload", "server", "location", "url");
+
+    private static volatile char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
 
     /**
      * Server to connect to
@@ -61,12 +80,12 @@ public class Speedtest implements Runnable {
     private double ping = -1;
 
     /**
-     * Average download speed in bits
+     * Average download speed in bits, NaN if not part of the scope
      */
     private double download = -1;
 
     /**
-     * Average upload speed in bits
+     * Average upload speed in bits, NaN if not part of the scope
      */
     private double upload = -1;
 
@@ -90,6 +109,46 @@ public class Speedtest implements Runnable {
      */
     private ZonedDateTime timestamp = null;
 
+    /**
+     * Values measured by the backend, null if the latency phase failed
+     */
+    private Measurement measurement = null;
+
+    /**
+     * Counters that describe how far the test is, updated by the backend
+     */
+    private final Progress progress = new Progress();
+
+    /**
+     * Time spent in the phases of the test, null if the test hasn't been run
+     */
+    private Timings timings = null;
+
+    /**
+     * Time at which the latency phase ended, used to time the wait for the bandwidth phase
+     */
+    private long latencyEnd = 0;
+
+    /**
+     * The selector that picked the server, null if the server was given or picked by the backend
+     */
+    private ServerSelector selectedBy = null;
+
+    /**
+     * What the test measures
+     */
+    private Scope scope = Scope.FULL;
+
+    /**
+     * Bytes transferred by the test
+     */
+    private long bytes = 0;
+
+    /**
+     * Bytes left in the data budget after the test, -1 if there is no budget
+     */
+    private long budgetLeft = -1;
+
     public Speedtest(int id) {
         this(Optional.of(id));
     }
@@ -102,47 +161,389 @@ public class Speedtest implements Runnable {
         serverID = Optional.empty();
     }
 
+    /**
+     * Create a completed speedtest from results that have been measured before
+     *
+     * @param timestamp  time at which the test was done
+     * @param ping       ping in milliseconds
+     * @param download   download rate in bit/s
+     * @param upload     upload rate in bit/s
+     * @param serverName name of the host server
+     * @param location   location of the host server
+     * @param url        url of the host server
+     * @return the speedtest
+     */
+    public static Speedtest of(ZonedDateTime timestamp, double ping, double download, double upload,
+                               String serverName, String location, String url) {
+        Speedtest speedtest = new Speedtest();
+        speedtest.setResults(ping, download, upload, serverName, location, url, timestamp);
+        return speedtest;
+    }
+
+    /**
+     * Run the whole test, first {@link #runLatencyPhase()} then {@link #runBandwidthPhase()}
+     */
     @Override
     public void run() {
+        runLatencyPhase();
+        runBandwidthPhase();
+    }
+
+    /**
+     * Select the server and measure the latency
+     * <p>
+     * This phase only transfers a few bytes, so it can run in parallel to other tests.
+     * Backends that can't separate the phases do everything in the bandwidth phase.
+     * If no server is given and a {@link ServerSelector} is set, the selector picks the server.
+     */
+    public void runLatencyPhase() {
+        timings = new Timings();
+        progress.phase(Progress.Phase.LATENCY);
+        ProgressMonitor.getInstance().track(this);
+        Optional<Integer> server = serverID;
+        final ServerSelector selector = serverSelector;
+        if (!server.isPresent() && selector != null) {
+            final long start = System.nanoTime();
+            try {
+                server = Optional.of(selector.best());
+                selectedBy = selector;
+            } catch (Exception e) {
+                System.out.println("Server selection failed (" + e + "), letting " + backend.getName() + " pick the server");
+            }
+            timings.record(Timings.Phase.SELECTION, start);
+        }
+        measurement = new Measurement(server, progress, timings);
+        measurement.setScope(scope);
         try {
-            final Runtime runtime = Runtime.getRuntime();
-            String command;
-            if (serverID.isPresent()) command = String.format(COMMAND, serverID.get(), TIMEOUT);
-            else command = String.format(COMMAND_UNSPECIFIC_SERVER, TIMEOUT);
-            Process process = runtime.exec(command);
-            JSONObject object = (JSONObject) new JSONParser().parse(new InputStreamReader(process.getInputStream()));
-            ping = (double) object.get("ping");
-            download = (double) object.get("download");
-            upload = (double) object.get("upload");
-            JSONObject server = (JSONObject) object.get("server");
-            serverName = (String) server.get("sponsor");
-            location = (String) server.get("name");
-            url = (String) server.get("url");
-            timestamp = LocalDateTime.parse(((String) object.get("timestamp")).split("\\.")[0]).atZone(ZoneId.of("UTC"));
-            System.out.printf("Speedtest done! Ping: %.3fms Download: %.3fMbit/s Upload:% .3fMbit/s Server: %s (%s)\n",
+            backend.latency(measurement);
+            progress.phase(Progress.Phase.WAITING);
+            latencyEnd = System.nanoTime();
+        } catch (Exception e) {
+            finish();
+            e.printStackTrace();
+            measurement = null;
+            if (selectedBy != null) selectedBy.refresh();
+        }
+    }
+
+    /**
+     * Measure download and upload rate
+     * <p>
+     * Tests running in parallel would distort each others results in this phase.
+     */
+    public void runBandwidthPhase() {
+        if (measurement == null) return;
+        timings.record(Timings.Phase.WAIT, latencyEnd);
+        try {
+            progress.phase(Progress.Phase.BANDWIDTH);
+            backend.bandwidth(measurement);
+            finish();
+            setResults(measurement.getPing(),
+                       measurement.getDownload(),
+                       measurement.getUpload(),
+                       measurement.getServerName(),
+                       measurement.getLocation(),
+                       measurement.getUrl(),
+                       measurement.getTimestamp());
+            System.out.printf("Speedtest done! Ping: %.3fms Download: %s Upload: %s Server: %s (%s)\n",
                               ping,
-                              download / 1000000,
-                              upload / 1000000,
+                              rate(download),
+                              rate(upload),
                               serverName,
                               location);
         } catch (Exception e) {
+            finish();
             e.printStackTrace();
+            if (selectedBy != null) selectedBy.refresh();
+        } finally {
+            measurement = null;
         }
     }
 
+    private static String rate(double rate) {
+        return Double.isNaN(rate) ? "-" : String.format("%.3fMbit/s", rate / 1000000);
+    }
+
+    private void finish() {
+        timings.finish();
+        bytes = progress.getTotalBytes();
+        progress.phase(Progress.Phase.DONE);
+        ProgressMonitor.getInstance().untrack(this);
+    }
+
+    /**
+     * @return counters that describe how far the test is
+     */
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return time spent in the phases of the test or null if the test hasn't been run, e.g. if it was read from a log
+     */
+    public Timings getTimings() {
+        return timings;
+    }
+
+    /**
+     * @return what the test measures
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @param scope what the test measures, must be set before the test is run
+     */
+    public void setScope(Scope scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * @return bytes transferred by the test, 0 if the test hasn't been run or was read from a log
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return bytes left in the data budget after the test or -1 if there is no budget
+     */
+    public long getBudgetLeft() {
+        return budgetLeft;
+    }
+
+    public void setBudgetLeft(long budgetLeft) {
+        this.budgetLeft = budgetLeft;
+    }
+
+    /**
+     * Store the results of the test
+     */
+    void setResults(double ping, double download, double upload,
+                    String serverName, String location, String url, ZonedDateTime timestamp) {
+        this.ping = ping;
+        this.download = download;
+        this.upload = upload;
+        this.serverName = serverName;
+        this.location = location;
+        this.url = url;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the server to connect to or empty if the best server is picked automatically
+     */
+    public Optional<Integer> getServerID() {
+        return serverID;
+    }
+
+    /**
+     * Parse a line of the .csv written by {@link Log}
+     *
+     * @param line             the line
+     * @param delimiter        the delimiter of the columns
+     * @param decimalSeparator the decimal separator of the numbers
+     * @return a completed speedtest with the timestamp in the system time zone
+     * @throws IllegalArgumentException if the line is not a valid result (e.g. the header)
+     */
+    public static Speedtest fromCsv(String line, char delimiter, char decimalSeparator)
+            throws IllegalArgumentException {
+        final int[] ends = new int[7];
+        int column = 0;
+        for (int i = 0; i < line.length() && column < 6; i++) {
+            if (line.charAt(i) == delimiter) ends[column++] = i;
+        }
+        if (column < 6) throw new IllegalArgumentException("Not a speedtest result: " + line);
+        //ignore additional columns, e.g. timings
+        ends[6] = line.indexOf(delimiter, ends[5] + 1);
+        if (ends[6] < 0) ends[6] = line.length();
+        try {
+            final String time = line.substring(0, ends[0]).trim();
+            if (time.length() != 19) throw new IllegalArgumentException("Invalid time: " + time);
+            final LocalDateTime timestamp = LocalDateTime.of(digits(time, 0, 4), digits(time, 5, 7), digits(time, 8, 10),
+                                                             digits(time, 11, 13), digits(time, 14, 16), digits(time, 17, 19));
+            final double ping = number(line, ends[0] + 1, ends[1], decimalSeparator);
+            if (Double.isNaN(ping)) throw new IllegalArgumentException("Missing ping: " + line);
+            //download and upload are empty if they were not part of the scope
+            return of(timestamp.atZone(ZoneId.systemDefault()),
+                      ping,
+                      number(line, ends[1] + 1, ends[2], decimalSeparator) * 1000000,
+                      number(line, ends[2] + 1, ends[3], decimalSeparator) * 1000000,
+                      line.substring(ends[3] + 1, ends[4]),
+                      line.substring(ends[4] + 1, ends[5]),
+                      line.substring(ends[5] + 1, ends[6]));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Not a speedtest result: " + line, e);
+        }
+    }
+
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Invalid time: " + s);
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static double number(String line, int start, int end, char decimalSeparator) {
+        String number = line.substring(start, end).trim();
+        if (number.isEmpty()) return Double.NaN;
+        if (decimalSeparator != '.') number = number.replace(decimalSeparator, '.');
+        return Double.parseDouble(number);
+    }
+
+    /**
+     * @return the backend that runs the tests
+     */
+    public static MeasurementBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @param measurementBackend the backend that runs the tests
+     */
+    public static void setBackend(MeasurementBackend measurementBackend) {
+        backend = measurementBackend;
+    }
+
+    /**
+     * @return the selector that picks the server for tests without a fixed server or null if the backend picks it
+     */
+    public static ServerSelector getServerSelector() {
+        return serverSelector;
+    }
+
+    /**
+     * @param selector the selector that picks the server for tests without a fixed server
+     *                 or null to let the backend pick it
+     */
+    public static void setServerSelector(ServerSelector selector) {
+        serverSelector = selector;
+    }
+
+    /**
+     * @return timeout for network operations in seconds
+     */
+    public static int getTimeout() {
+        return TIMEOUT;
+    }
+
+    /**
+     * @return the decimal separator used for numbers in the .csv
+     */
+    public static char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * @param separator the decimal separator used for numbers in the .csv
+     */
+    public static void setDecimalSeparator(char separator) {
+        decimalSeparator = separator;
+    }
+
+    /**
+     * @return ping in milliseconds
+     */
+    public double getPing() {
+        return ping;
+    }
+
+    /**
+     * @return average download rate in bit/s
+     */
+    public double getDownload() {
+        return download;
+    }
+
+    /**
+     * @return average upload rate in bit/s
+     */
+    public double getUpload() {
+        return upload;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return time at which the test was done
+     */
+    public ZonedDateTime getTimestamp() {
+        return timestamp;
+    }
+
     /**
      * @return If the test has been completed and results have been cached
      */
     public boolean completed() {
+        //NaN if not part of the scope
         return ping >= 0
-                && download >= 0
-                && upload >= 0
+                && !(download < 0)
+                && !(upload < 0)
                 && serverName != null
                 && location != null
                 && url != null
                 && timestamp != null;
     }
 
+    /**
+     * Returns the header of the csv columns written by {@link #valuesAsCsv(char, boolean)}
+     *
+     * @param delimiter the delimiter to use in csv output
+     * @param timings   if the columns for the time spent in the phases of the test should be added
+     * @return the header
+     */
+    public static String csvHeader(final char delimiter, boolean timings) {
+        return csvHeader(delimiter, timings, false);
+    }
+
+    /**
+     * Returns the header of the csv columns written by {@link #valuesAsCsv(char, boolean, boolean)}
+     *
+     * @param delimiter the delimiter to use in csv output
+     * @param timings   if the columns for the time spent in the phases of the test should be added
+     * @param data      if the columns for the transferred data, the data budget and the scope should be added
+     * @return the header
+     */
+    public static String csvHeader(final char delimiter, boolean timings, boolean data) {
+        StringJoiner joiner = new StringJoiner(String.valueOf(delimiter));
+        joiner
+                .add("Time")
+                .add("Ping (ms)")
+                .add("Download rate (Mbit/s)")
+                .add("Upload rate (Mbit/s)")
+                .add("Server")
+                .add("Location")
+                .add("URL");
+        if (data) {
+            joiner
+                    .add("Data (MB)")
+                    .add("Budget left (MB)")
+                    .add("Test");
+        }
+        if (timings) {
+            //the log phase is still running when the line is written
+            for (Timings.Phase phase : Timings.Phase.values()) {
+                if (phase != Timings.Phase.LOG) joiner.add(phase.getTitle() + " (ms)");
+            }
+            joiner.add("Total (ms)");
+        }
+        return joiner.toString();
+    }
+
     /**
      * Returns a string containing the result of the speedtest, formatted to be exported as csv
      *
@@ -151,20 +552,119 @@ public class Speedtest implements Runnable {
      * @throws RuntimeException if the speedtest hasn't been executed yet
      */
     public String valuesAsCsv(final char delimiter) throws RuntimeException {
+        return valuesAsCsv(delimiter, false);
+    }
+
+    /**
+     * Returns a string containing the result of the speedtest, formatted to be exported as csv
+     *
+     * @param delimiter the delimiter to use in csv output
+     * @param timings   if the time spent in the phases of the test should be added, see {@link #csvHeader(char, boolean)}
+     * @return the formatted result
+     * @throws RuntimeException if the speedtest hasn't been executed yet
+     */
+    public String valuesAsCsv(final char delimiter, boolean timings) throws RuntimeException {
+        return valuesAsCsv(delimiter, timings, false);
+    }
+
+    /**
+     * Returns a string containing the result of the speedtest, formatted to be exported as csv
+     *
+     * @param delimiter the delimiter to use in csv output
+     * @param timings   if the time spent in the phases of the test should be added
+     * @param data      if the transferred data, the data budget and the scope should be added,
+     *                  see {@link #csvHeader(char, boolean, boolean)}
+     * @return the formatted result
+     * @throws RuntimeException if the speedtest hasn't been executed yet
+     */
+    public String valuesAsCsv(final char delimiter, boolean timings, boolean data) throws RuntimeException {
         if (!completed()) throw new RuntimeException("Speedtest must be run before values can be got");
         StringJoiner joiner = new StringJoiner(String.valueOf(delimiter));
-        DecimalFormat decimalFormat = new DecimalFormat("0.000");
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        symbols.setDecimalSeparator(decimalSeparator);
+        DecimalFormat decimalFormat = new DecimalFormat("0.000", symbols);
         joiner
-                .add(timestamp.withZoneSameInstant(ZoneId.systemDefault()).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                .add(timestamp.withZoneSameInstant(ZoneId.systemDefault()).format(CSV_TIME))
                 .add(decimalFormat.format(ping))
-                .add(decimalFormat.format(download / 1000000)) //in Mbit/s
-                .add(decimalFormat.format(upload / 1000000)) //in Mbit/s
+                .add(Double.isNaN(download) ? "" : decimalFormat.format(download / 1000000)) //in Mbit/s
+                .add(Double.isNaN(upload) ? "" : decimalFormat.format(upload / 1000000)) //in Mbit/s
                 .add(serverName)
                 .add(location)
                 .add(url);
+        if (data) {
+            joiner
+                    .add(decimalFormat.format(bytes / 1e6))
+                    .add(budgetLeft < 0 ? "" : decimalFormat.format(budgetLeft / 1e6))
+                    .add(scope.getTitle());
+        }
+        if (timings) {
+            final Timings t = this.timings;
+            for (Timings.Phase phase : Timings.Phase.values()) {
+                if (phase == Timings.Phase.LOG) continue;
+                //empty if the backend doesn't have the phase
+                joiner.add(t == null || t.get(phase) == 0 ? "" : decimalFormat.format(t.get(phase) / 1e6));
+            }
+            joiner.add(t == null ? "" : decimalFormat.format(t.getTotal() / 1e6));
+        }
         return joiner.toString();
     }
 
+    /**
+     * Returns the result of the speedtest as JSON object in one line,
+     * with the ping in ms and the rates in bit/s (null if they were not measured)
+     *
+     * @return the formatted result
+     * @throws RuntimeException if the speedtest hasn't been executed yet
+     */
+    public String valuesAsJson() throws RuntimeException {
+        if (!completed()) throw new RuntimeException("Speedtest must be run before values can be got");
+        final StringBuilder json = new StringBuilder(256);
+        json.append("{\"time\":\"").append(timestamp.format(JSON_TIME)).append('"')
+                .append(",\"ping\":").append(String.format(Locale.ROOT, "%.3f", ping))
+                .append(",\"download\":").append(Double.isNaN(download) ? "null" : String.valueOf(Math.round(download)))
+                .append(",\"upload\":").append(Double.isNaN(upload) ? "null" : String.valueOf(Math.round(upload)))
+                .append(",\"server\":");
+        jsonString(json, serverName);
+        json.append(",\"location\":");
+        jsonString(json, location);
+        json.append(",\"url\":");
+        jsonString(json, url);
+        return json.append('}').toString();
+    }
+
+    private static void jsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') json.append('\\').append(c);
+            else if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+            else json.append(c);
+        }
+        json.append('"');
+    }
+
+    /**
+     * Read a result that has been written with {@link #valuesAsJson()}
+     *
+     * @param json the JSON object
+     * @return a completed speedtest
+     * @throws IllegalArgumentException if the JSON is not a valid result
+     */
+    public static Speedtest fromJson(String json) throws IllegalArgumentException {
+        try {
+            final Map<String, String> values = JSON_FIELDS.read(json);
+            return of(ZonedDateTime.parse(JsonFields.getString(values, "time"), JSON_TIME),
+                      JsonFields.getDouble(values, "ping"),
+                      values.containsKey("download") ? JsonFields.getDouble(values, "download") : Double.NaN,
+                      values.containsKey("upload") ? JsonFields.getDouble(values, "upload") : Double.NaN,
+                      JsonFields.getString(values, "server"),
+                      JsonFields.getString(values, "location"),
+                      JsonFields.getString(values, "url"));
+        } catch (IOException | DateTimeException e) {
+            throw new IllegalArgumentException("Not a speedtest result: " + json, e);
+        }
+    }
+
     @Override
     public String toString() {
         if (completed()) {
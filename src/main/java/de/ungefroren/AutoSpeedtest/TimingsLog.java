@@ -0,0 +1,149 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.backend.Timings;
+import de.ungefroren.AutoSpeedtest.stats.RunningStats;
+
+/**
+ * Writes the time spent in the phases of every test to a debug log and keeps running statistics per phase
+ * <p>
+ * Every test is written as one JSON object per line with the times in milliseconds,
+ * phases the backend doesn't have are left out.
+ * Every {@value #SUMMARY_INTERVAL} tests and on shutdown a summary line with count, mean, standard deviation,
+ * min and max of every phase is added, the summary is also printed to the console on shutdown.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class TimingsLog implements Consumer<Speedtest> {
+
+    private static final int SUMMARY_INTERVAL = 10;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private final File file;
+    private final Map<Timings.Phase, RunningStats> phases = new EnumMap<>(Timings.Phase.class);
+    private final RunningStats total = new RunningStats();
+    private long tests = 0;
+
+    /**
+     * @param log the log of the results, the timings are written next to it to {@code <log>-timings.log}
+     */
+    public TimingsLog(Log log) {
+        final File logFile = log.getFile().getAbsoluteFile();
+        String name = logFile.getName();
+        if (name.toLowerCase().endsWith(".csv")) name = name.substring(0, name.length() - 4);
+        file = new File(logFile.getParentFile(), name + "-timings.log");
+        for (Timings.Phase phase : Timings.Phase.values()) phases.put(phase, new RunningStats());
+    }
+
+    /**
+     * Write and print the statistics of all tests, once the last test has been logged
+     */
+    public synchronized void close() {
+        if (total.getCount() == 0) return;
+        final String summary = summary();
+        write(summary);
+        System.out.println("Timings: " + summary);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Write the timings of a test and add them to the statistics
+     *
+     * @param speedtest a test that has been run, successful or not
+     */
+    @Override
+    public synchronized void accept(Speedtest speedtest) {
+        final Timings timings = speedtest.getTimings();
+        if (timings == null) return;
+        final StringBuilder line = new StringBuilder(256);
+        line.append("{\"time\":\"").append(ZonedDateTime.now(ZoneId.systemDefault()).format(TIME)).append('"');
+        line.append(",\"server\":").append(speedtest.getServerID().map(String::valueOf).orElse("null"));
+        line.append(",\"completed\":").append(speedtest.completed());
+        for (Timings.Phase phase : Timings.Phase.values()) {
+            final long nanos = timings.get(phase);
+            if (nanos == 0) continue;
+            phases.get(phase).add(nanos / 1e6);
+            line.append(",\"").append(phase.getTitle().toLowerCase()).append("\":").append(millis(nanos / 1e6));
+        }
+        total.add(timings.getTotal() / 1e6);
+        line.append(",\"total\":").append(millis(timings.getTotal() / 1e6)).append('}');
+        write(line.toString());
+        if (++tests % SUMMARY_INTERVAL == 0) write(summary());
+    }
+
+    /**
+     * @return the statistics of all phases as JSON object
+     */
+    public synchronized String summary() {
+        final StringBuilder summary = new StringBuilder(1024);
+        summary.append("{\"summary\":{");
+        for (Map.Entry<Timings.Phase, RunningStats> entry : phases.entrySet()) {
+            if (entry.getValue().getCount() == 0) continue;
+            stats(summary, entry.getKey().getTitle().toLowerCase(), entry.getValue()).append(',');
+        }
+        return stats(summary, "total", total).append("}}").toString();
+    }
+
+    private static StringBuilder stats(StringBuilder out, String name, RunningStats stats) {
+        return out.append('"').append(name).append("\":{")
+                .append("\"count\":").append(stats.getCount())
+                .append(",\"mean\":").append(millis(stats.getMean()))
+                .append(",\"stddev\":").append(millis(stats.getStandardDeviation()))
+                .append(",\"min\":").append(millis(stats.getMin()))
+                .append(",\"max\":").append(millis(stats.getMax()))
+                .append('}');
+    }
+
+    private static String millis(double millis) {
+        //json has no NaN
+        return Double.isNaN(millis) ? "null" : String.format(Locale.ROOT, "%.3f", millis);
+    }
+
+    private void write(String line) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file, true))) {
+            bw.write(line);
+            bw.newLine();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Runs every test in a new speedtest-cli subprocess
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class CliBackend implements MeasurementBackend {
+
+    /**
+     * Time after which speedtest-cli is killed, at least this or 12 times the timeout
+     */
+    private static final long MIN_DEADLINE = 2 * 60 * 1000L;
+    private static final int RETRIES = 1;
+    private static final long BACKOFF = 10 * 1000L;
+
+    /**
+     * The fields of the speedtest-cli --json output that are used
+     */
+    private static final JsonFields FIELDS = new JsonFields("ping", "download", "upload", "timestamp",
+                                                            "server.sponsor", "server.name", "server.url",
+                                                            "bytes_sent", "bytes_received", "error");
+
+    private final ProcessRunner runner = new ProcessRunner("speedtest-cli", MIN_DEADLINE, RETRIES, BACKOFF);
+
+    @Override
+    public String getName() {
+        return "cli";
+    }
+
+    @Override
+    public void bandwidth(Measurement measurement) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add("speedtest-cli");
+        command.add("--json");
+        measurement.getServerID().ifPresent(id -> {
+            command.add("--server");
+            command.add(String.valueOf(id));
+        });
+        command.add("--secure");
+        command.add("--timeout");
+        command.add(String.valueOf(Speedtest.getTimeout()));
+        //speedtest-cli can skip a direction, but can't shorten the test
+        if (!measurement.getScope().isDownload()) command.add("--no-download");
+        if (!measurement.getScope().isUpload()) command.add("--no-upload");
+        final Timings timings = measurement.getTimings();
+        //the timeout may be changed after the backend was created, e.g. in the setup dialog
+        final long deadline = Math.max(MIN_DEADLINE, Speedtest.getTimeout() * 12000L);
+        final ProcessRunner.Result result = runner.run(measurement.getServerID().map(id -> "#" + id).orElse("auto"),
+                                                       deadline, command.toArray(new String[0]));
+        timings.add(Timings.Phase.SPAWN, result.getSpawnNanos());
+        timings.add(Timings.Phase.PROCESS, result.getRunNanos());
+        final long start = System.nanoTime();
+        setResults(measurement, new StringReader(result.getStdout()));
+        timings.record(Timings.Phase.PARSE, start);
+    }
+
+    /**
+     * Read results in the format of speedtest-cli --json
+     *
+     * @param measurement the measurement to fill
+     * @param reader      the json output
+     * @throws IOException if the output could not be read or contains an error
+     */
+    static void setResults(Measurement measurement, Reader reader) throws IOException {
+        final Map<String, String> values = FIELDS.read(reader);
+        if (values.containsKey("error")) throw new IOException("speedtest-cli: " + values.get("error"));
+        measurement.setPing(JsonFields.getDouble(values, "ping"));
+        //skipped directions are reported as 0
+        if (measurement.getScope().isDownload()) measurement.setDownload(JsonFields.getDouble(values, "download"));
+        if (measurement.getScope().isUpload()) measurement.setUpload(JsonFields.getDouble(values, "upload"));
+        if (values.containsKey("bytes_sent") && values.containsKey("bytes_received")) {
+            measurement.getProgress().transferred((long) (JsonFields.getDouble(values, "bytes_sent")
+                    + JsonFields.getDouble(values, "bytes_received")));
+        }
+        measurement.setServer(JsonFields.getString(values, "server.sponsor"),
+                              JsonFields.getString(values, "server.name"),
+                              JsonFields.getString(values, "server.url"));
+        //e.g. 2018-07-05T12:00:00.123456Z
+        String timestamp = JsonFields.getString(values, "timestamp").split("\\.")[0];
+        if (timestamp.endsWith("Z")) timestamp = timestamp.substring(0, timestamp.length() - 1);
+        try {
+            measurement.setTimestamp(LocalDateTime.parse(timestamp).atZone(ZoneId.of("UTC")));
+        } catch (DateTimeParseException e) {
+            throw new IOException("Invalid timestamp from speedtest-cli: " + timestamp, e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+
+/**
+ * Uses a second backend for tests that failed with the first one
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class FallbackBackend implements MeasurementBackend {
+
+    /**
+     * Attached to measurements whose latency phase failed with the primary backend
+     */
+    private static final Object FAILED = new Object();
+
+    private final MeasurementBackend primary;
+    private final MeasurementBackend fallback;
+
+    /**
+     * @param primary  the backend that is tried first
+     * @param fallback the backend that is used if the primary backend fails
+     */
+    public FallbackBackend(MeasurementBackend primary, MeasurementBackend fallback) {
+        this.primary = primary;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String getName() {
+        return primary.getName();
+    }
+
+    @Override
+    public void latency(Measurement measurement) {
+        try {
+            primary.latency(measurement);
+        } catch (Exception e) {
+            System.out.println(primary.getName() + " speedtest failed (" + e + "), falling back to " + fallback.getName());
+            measurement.attach(FAILED);
+        }
+    }
+
+    @Override
+    public void bandwidth(Measurement measurement) throws IOException {
+        if (measurement.attachment() != FAILED) {
+            try {
+                primary.bandwidth(measurement);
+                return;
+            } catch (Exception e) {
+                System.out.println(primary.getName() + " speedtest failed (" + e + "), falling back to " + fallback.getName());
+            }
+        }
+        measurement.attach(null);
+        fallback.latency(measurement);
+        fallback.bandwidth(measurement);
+    }
+}
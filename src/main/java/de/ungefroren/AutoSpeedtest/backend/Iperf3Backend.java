@@ -0,0 +1,155 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Measures the bandwidth to an iperf3 server with the iperf3 binary
+ * <p>
+ * Upload is measured with a normal run, download with a reverse run (-R).
+ * The ping is the mean TCP round trip time iperf3 reports for the upload,
+ * on systems where iperf3 doesn't report it the time to open a TCP connection is used.
+ * Server ids are ignored, all tests run against the configured server.
+ * A run is repeated if it fails, e.g. because the server is busy with the test of another client.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Iperf3Backend implements MeasurementBackend {
+
+    public static final int DEFAULT_PORT = 5201;
+
+    private static final String RATE = "end.sum_received.bits_per_second";
+    private static final String RTT = "end.streams.0.sender.mean_rtt";
+    private static final String BYTES = "end.sum_sent.bytes";
+    private static final JsonFields FIELDS = new JsonFields(RATE, RTT, BYTES, "error");
+    private static final int RETRIES = 2;
+    private static final long BACKOFF = 2000;
+
+    private final String command;
+    private final String host;
+    private final int port;
+    private final int seconds;
+    private final ProcessRunner runner = new ProcessRunner("iperf3", 0, RETRIES, BACKOFF);
+
+    /**
+     * @param command the iperf3 binary
+     * @param host    host of the iperf3 server
+     * @param port    port of the iperf3 server
+     * @param seconds duration of the download and the upload phase
+     */
+    public Iperf3Backend(String command, String host, int port, int seconds) {
+        this.command = command;
+        this.host = host;
+        this.port = port;
+        this.seconds = seconds;
+    }
+
+    /**
+     * @param host host of the iperf3 server
+     * @param port port of the iperf3 server
+     */
+    public Iperf3Backend(String host, int port) {
+        this("iperf3", host, port, 10);
+    }
+
+    @Override
+    public String getName() {
+        return "iperf3";
+    }
+
+    @Override
+    public void bandwidth(Measurement measurement) throws IOException {
+        measurement.setTimestamp(ZonedDateTime.now(ZoneId.of("UTC")));
+        measurement.setServer("iperf3", host, "iperf3://" + host + ":" + port);
+        final Scope scope = measurement.getScope();
+        final long seconds = scope.duration(this.seconds);
+        final Progress progress = measurement.getProgress();
+        Map<String, String> upload = null;
+        if (scope.isUpload()) {
+            progress.phase(Progress.Phase.UPLOAD, seconds * 1000000000L);
+            upload = run(false, seconds, measurement.getTimings());
+            measurement.setUpload(JsonFields.getDouble(upload, RATE));
+            if (upload.containsKey(BYTES)) progress.transferred((long) JsonFields.getDouble(upload, BYTES));
+        }
+        if (scope.isDownload()) {
+            progress.phase(Progress.Phase.DOWNLOAD, seconds * 1000000000L);
+            final Map<String, String> download = run(true, seconds, measurement.getTimings());
+            measurement.setDownload(JsonFields.getDouble(download, RATE));
+            //the server sends in reverse mode, so the bytes it sent are the ones we received
+            if (download.containsKey(BYTES)) progress.transferred((long) JsonFields.getDouble(download, BYTES));
+        }
+        if (upload != null && upload.containsKey(RTT)) measurement.setPing(JsonFields.getDouble(upload, RTT) / 1000); //in µs
+        else measurement.setPing(connectTime());
+    }
+
+    private Map<String, String> run(boolean reverse, long seconds, Timings timings) throws IOException {
+        final String[] arguments = reverse
+                ? new String[]{command, "-c", host, "-p", String.valueOf(port), "-t", String.valueOf(seconds), "-J", "-R"}
+                : new String[]{command, "-c", host, "-p", String.valueOf(port), "-t", String.valueOf(seconds), "-J"};
+        //the test itself, connecting and the summary at the end
+        final long deadline = (seconds + 2L * Speedtest.getTimeout()) * 1000;
+        final ProcessRunner.Result result;
+        try {
+            result = runner.run(host + ":" + port, deadline, arguments);
+        } catch (ProcessRunner.ExitException e) {
+            //iperf3 reports its errors in the json output
+            final String error;
+            try {
+                error = FIELDS.read(e.getResult().getStdout()).get("error");
+            } catch (IOException ignored) {
+                throw e;
+            }
+            if (error != null) throw new IOException("iperf3: " + error, e);
+            throw e;
+        }
+        timings.add(Timings.Phase.SPAWN, result.getSpawnNanos());
+        timings.add(reverse ? Timings.Phase.DOWNLOAD : Timings.Phase.UPLOAD, result.getRunNanos());
+        final long start = System.nanoTime();
+        final Map<String, String> values = FIELDS.read(result.getStdout());
+        timings.record(Timings.Phase.PARSE, start);
+        if (values.containsKey("error")) throw new IOException("iperf3: " + values.get("error"));
+        return values;
+    }
+
+    /**
+     * @return time to open a TCP connection to the server in milliseconds
+     */
+    private double connectTime() throws IOException {
+        final long start = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), Speedtest.getTimeout() * 1000);
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
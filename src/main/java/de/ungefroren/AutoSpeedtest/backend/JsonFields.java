@@ -0,0 +1,273 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming JSON reader that only extracts the values of a few fields
+ * <p>
+ * The input is tokenized without building a tree. Objects and arrays that can't contain
+ * one of the requested fields are skipped without keeping their names or strings.
+ * Fields are addressed by their path, with array indices as path elements, e.g.
+ * {@code server.sponsor} or {@code end.streams.0.sender.mean_rtt}.
+ * <p>
+ * Instances can be shared between threads.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class JsonFields {
+
+    private final Set<String> wanted = new HashSet<>();
+    /**
+     * Paths of the objects and arrays that contain wanted fields
+     */
+    private final Set<String> parents = new HashSet<>();
+
+    /**
+     * @param paths the paths of the fields to extract
+     */
+    public JsonFields(String... paths) {
+        for (String path : paths) {
+            wanted.add(path);
+            for (int i = path.indexOf('.'); i != -1; i = path.indexOf('.', i + 1)) parents.add(path.substring(0, i));
+        }
+    }
+
+    /**
+     * Read a JSON document
+     *
+     * @param reader the input, it is not closed and should be buffered
+     * @return the values of the requested fields that have been found, strings unescaped,
+     * numbers and booleans as they are written in the input, null values are omitted
+     * @throws IOException if the input could not be read or is not valid JSON
+     */
+    public Map<String, String> read(Reader reader) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        new Cursor(reader, values).value("", true);
+        return values;
+    }
+
+    /**
+     * Read a JSON document from a string
+     *
+     * @see #read(Reader)
+     */
+    public Map<String, String> read(String json) throws IOException {
+        return read(new StringReader(json));
+    }
+
+    /**
+     * @param values the values returned by {@link #read(Reader)}
+     * @param path   path of a field
+     * @return the value of the field as double
+     * @throws IOException if the field is missing or not a number
+     */
+    public static double getDouble(Map<String, String> values, String path) throws IOException {
+        String value = getString(values, path);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Field " + path + " is not a number: " + value);
+        }
+    }
+
+    /**
+     * @param values the values returned by {@link #read(Reader)}
+     * @param path   path of a field
+     * @return the value of the field
+     * @throws IOException if the field is missing
+     */
+    public static String getString(Map<String, String> values, String path) throws IOException {
+        String value = values.get(path);
+        if (value == null) throw new IOException("Missing field " + path);
+        return value;
+    }
+
+    /**
+     * State of a single read
+     */
+    private class Cursor {
+
+        private final Reader reader;
+        private final Map<String, String> values;
+        private int peek = -2;
+
+        Cursor(Reader reader, Map<String, String> values) {
+            this.reader = reader;
+            this.values = values;
+        }
+
+        /**
+         * @param path  path of the value, only valid if tracked
+         * @param track if the value may be or contain a wanted field
+         */
+        void value(String path, boolean track) throws IOException {
+            final int c = next();
+            switch (c) {
+                case '{':
+                    if (peekNext() == '}') {
+                        next();
+                        return;
+                    }
+                    do {
+                        if (next() != '"') throw error("Expected field name");
+                        final String name = string(track);
+                        if (next() != ':') throw error("Expected :");
+                        if (track) {
+                            final String child = path.isEmpty() ? name : path + '.' + name;
+                            value(child, wanted.contains(child) || parents.contains(child));
+                        } else {
+                            value(null, false);
+                        }
+                    } while (separator('}'));
+                    return;
+                case '[':
+                    if (peekNext() == ']') {
+                        next();
+                        return;
+                    }
+                    int index = 0;
+                    do {
+                        if (track) {
+                            final String child = path.isEmpty() ? String.valueOf(index) : path + '.' + index;
+                            value(child, wanted.contains(child) || parents.contains(child));
+                        } else {
+                            value(null, false);
+                        }
+                        index++;
+                    } while (separator(']'));
+                    return;
+                case '"':
+                    final boolean capture = track && wanted.contains(path);
+                    final String string = string(capture);
+                    if (capture) values.put(path, string);
+                    return;
+                default:
+                    StringBuilder literal = new StringBuilder();
+                    literal.append((char) c);
+                    while (isLiteral(peekRaw())) {
+                        literal.append((char) peek);
+                        peek = -2;
+                    }
+                    final String text = literal.toString();
+                    if (!text.equals("true") && !text.equals("false") && !text.equals("null")
+                            && !text.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                        throw error("Unexpected " + text);
+                    }
+                    if (track && wanted.contains(path) && !text.equals("null")) values.put(path, text);
+            }
+        }
+
+        private boolean separator(char end) throws IOException {
+            final int c = next();
+            if (c == ',') return true;
+            if (c == end) return false;
+            throw error("Expected , or " + end);
+        }
+
+        private boolean isLiteral(int c) {
+            return c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c == '-' || c == '+' || c == '.' || c == 'E';
+        }
+
+        private String string(boolean keep) throws IOException {
+            StringBuilder builder = keep ? new StringBuilder() : null;
+            while (true) {
+                int c = reader.read();
+                if (c == -1) throw error("Unterminated string");
+                if (c == '"') return keep ? builder.toString() : null;
+                if (c == '\\') {
+                    c = reader.read();
+                    switch (c) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = '\f';
+                            break;
+                        case 'u':
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) hex[i] = (char) reader.read();
+                            try {
+                                c = Integer.parseInt(new String(hex), 16);
+                            } catch (NumberFormatException e) {
+                                throw error("Invalid escape \\u" + new String(hex));
+                            }
+                            break;
+                        case -1:
+                            throw error("Unterminated string");
+                        default:
+                            //" \ and / stand for themselves
+                    }
+                }
+                if (keep) builder.append((char) c);
+            }
+        }
+
+        /**
+         * @return the next character that is not whitespace
+         */
+        private int next() throws IOException {
+            final int c = peekNext();
+            peek = -2;
+            if (c == -1) throw error("Unexpected end of input");
+            return c;
+        }
+
+        private int peekNext() throws IOException {
+            int c = peekRaw();
+            while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                peek = -2;
+                c = peekRaw();
+            }
+            return c;
+        }
+
+        private int peekRaw() throws IOException {
+            if (peek == -2) peek = reader.read();
+            return peek;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Invalid JSON: " + message);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static 3-d tree over the positions of servers on the unit sphere
+ * <p>
+ * Latitude and longitude are converted to points on the unit sphere, so the euclidean distance
+ * between two points grows with the great circle distance and there are no problems at the poles or the date line.
+ * The tree is stored in an array: the root of a range is the element in its middle.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+class KdTree {
+
+    private final Server[] servers;
+    private final double[][] points;
+
+    /**
+     * @param servers the servers to index
+     */
+    KdTree(List<Server> servers) {
+        final int n = servers.size();
+        Integer[] order = new Integer[n];
+        final double[][] all = new double[n][];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            all[i] = point(servers.get(i).getLat(), servers.get(i).getLon());
+        }
+        build(order, all, 0, n, 0);
+        this.servers = new Server[n];
+        this.points = new double[n][];
+        for (int i = 0; i < n; i++) {
+            this.servers[i] = servers.get(order[i]);
+            this.points[i] = all[order[i]];
+        }
+    }
+
+    private static void build(Integer[] order, double[][] points, int from, int to, int axis) {
+        if (to - from <= 1) return;
+        Arrays.sort(order, from, to, Comparator.comparingDouble(i -> points[i][axis]));
+        final int mid = (from + to) >>> 1;
+        build(order, points, from, mid, (axis + 1) % 3);
+        build(order, points, mid + 1, to, (axis + 1) % 3);
+    }
+
+    private static double[] point(double lat, double lon) {
+        final double phi = Math.toRadians(lat);
+        final double lambda = Math.toRadians(lon);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    /**
+     * @param lat   latitude
+     * @param lon   longitude
+     * @param count number of servers
+     * @return the servers closest to the given coordinates, closest first
+     */
+    List<Server> nearest(double lat, double lon, int count) {
+        if (count <= 0 || servers.length == 0) return Collections.emptyList();
+        Nearest nearest = new Nearest(point(lat, lon), Math.min(count, servers.length));
+        nearest.search(0, servers.length, 0);
+        List<Server> result = new ArrayList<>(nearest.size);
+        for (int i = 0; i < nearest.size; i++) result.add(servers[nearest.indices[i]]);
+        return result;
+    }
+
+    /**
+     * The k closest points found so far, sorted by distance
+     */
+    private class Nearest {
+
+        private final double[] target;
+        private final int[] indices;
+        private final double[] distances;
+        private int size = 0;
+
+        Nearest(double[] target, int k) {
+            this.target = target;
+            this.indices = new int[k];
+            this.distances = new double[k];
+        }
+
+        void search(int from, int to, int axis) {
+            if (from >= to) return;
+            final int mid = (from + to) >>> 1;
+            offer(mid);
+            final double diff = target[axis] - points[mid][axis];
+            final int next = (axis + 1) % 3;
+            //search the side of the target first, the other side only if it can contain closer points
+            if (diff < 0) {
+                search(from, mid, next);
+                if (size < indices.length || diff * diff < distances[size - 1]) search(mid + 1, to, next);
+            } else {
+                search(mid + 1, to, next);
+                if (size < indices.length || diff * diff < distances[size - 1]) search(from, mid, next);
+            }
+        }
+
+        private void offer(int index) {
+            final double[] p = points[index];
+            final double dx = p[0] - target[0], dy = p[1] - target[1], dz = p[2] - target[2];
+            final double distance = dx * dx + dy * dy + dz * dz;
+            if (size == indices.length && distance >= distances[size - 1]) return;
+            //insertion sort, k is small
+            int i = size < indices.length ? size++ : size - 1;
+            while (i > 0 && distances[i - 1] > distance) {
+                distances[i] = distances[i - 1];
+                indices[i] = indices[i - 1];
+                i--;
+            }
+            distances[i] = distance;
+            indices[i] = index;
+        }
+    }
+}
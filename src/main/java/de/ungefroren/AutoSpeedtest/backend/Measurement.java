@@ -0,0 +1,207 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+/**
+ * The values a {@link MeasurementBackend} measured during a test
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Measurement {
+
+    private final Optional<Integer> serverID;
+    private final Progress progress;
+    private final Timings timings;
+
+    private double ping = -1;
+    private double download = -1;
+    private double upload = -1;
+    private String serverName = null;
+    private String location = null;
+    private String url = null;
+    private ZonedDateTime timestamp = null;
+    private Object attachment = null;
+    private Scope scope = Scope.FULL;
+
+    /**
+     * @param serverID the server to test against or empty to pick the best server
+     * @param progress counters the backend updates while the test is running
+     * @param timings  time spent in the phases of the test, recorded by the backend
+     */
+    public Measurement(Optional<Integer> serverID, Progress progress, Timings timings) {
+        this.serverID = serverID;
+        this.progress = progress;
+        this.timings = timings;
+    }
+
+    /**
+     * @param serverID the server to test against or empty to pick the best server
+     * @param progress counters the backend updates while the test is running
+     */
+    public Measurement(Optional<Integer> serverID, Progress progress) {
+        this(serverID, progress, new Timings());
+    }
+
+    /**
+     * @param serverID the server to test against or empty to pick the best server
+     */
+    public Measurement(Optional<Integer> serverID) {
+        this(serverID, new Progress());
+    }
+
+    public Optional<Integer> getServerID() {
+        return serverID;
+    }
+
+    /**
+     * @return counters the backend updates while the test is running
+     */
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return time spent in the phases of the test
+     */
+    public Timings getTimings() {
+        return timings;
+    }
+
+    /**
+     * @return what the test measures
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @param scope what the test measures, values that are not part of the scope are set to NaN
+     */
+    public void setScope(Scope scope) {
+        this.scope = scope;
+        download = scope.isDownload() ? -1 : Double.NaN;
+        upload = scope.isUpload() ? -1 : Double.NaN;
+    }
+
+    /**
+     * @return ping in milliseconds
+     */
+    public double getPing() {
+        return ping;
+    }
+
+    public void setPing(double ping) {
+        this.ping = ping;
+    }
+
+    /**
+     * @return download rate in bit/s or NaN if it is not part of the scope
+     */
+    public double getDownload() {
+        return download;
+    }
+
+    public void setDownload(double download) {
+        this.download = download;
+    }
+
+    /**
+     * @return upload rate in bit/s or NaN if it is not part of the scope
+     */
+    public double getUpload() {
+        return upload;
+    }
+
+    public void setUpload(double upload) {
+        this.upload = upload;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @param serverName name of the host server
+     * @param location   location of the host server
+     * @param url        url of the host server
+     */
+    public void setServer(String serverName, String location, String url) {
+        this.serverName = serverName;
+        this.location = location;
+        this.url = url;
+    }
+
+    public ZonedDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @param timestamp time at which the test was started
+     */
+    public void setTimestamp(ZonedDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return state attached by the backend during the latency phase
+     */
+    public Object attachment() {
+        return attachment;
+    }
+
+    /**
+     * Attach backend specific state, e.g. to pass it from the latency to the bandwidth phase
+     *
+     * @param attachment the state
+     */
+    public void attach(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * @return if all values of the scope have been measured
+     */
+    public boolean completed() {
+        return ping >= 0
+                && (download >= 0 || !scope.isDownload())
+                && (upload >= 0 || !scope.isUpload())
+                && serverName != null
+                && location != null
+                && url != null
+                && timestamp != null;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+
+/**
+ * Implementation that measures the latency, download and upload rate for a {@link de.ungefroren.AutoSpeedtest.Speedtest}
+ * <p>
+ * A test is run in two phases: the latency phase only transfers a few bytes and may run in parallel
+ * to other tests, the bandwidth phase may only run in parallel to a limited number of other tests.
+ * Backends that can't separate the phases do everything in {@link #bandwidth(Measurement)}.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public interface MeasurementBackend {
+
+    /**
+     * @return short name of the backend, as used by the -engine argument
+     */
+    String getName();
+
+    /**
+     * Select the server and measure the latency
+     *
+     * @param measurement the measurement to fill, {@link Measurement#attach(Object)} can be used
+     *                    to pass state to the bandwidth phase
+     * @throws IOException if the measurement failed
+     */
+    default void latency(Measurement measurement) throws IOException {
+    }
+
+    /**
+     * Measure download and upload rate and fill in all values of the measurement that are still missing
+     *
+     * @param measurement the measurement to fill
+     * @throws IOException if the measurement failed
+     */
+    void bandwidth(Measurement measurement) throws IOException;
+}
@@ -0,0 +1,131 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+/**
+ * Backend that doesn't use the network and reports values around fixed base values
+ * <p>
+ * The values vary by a random factor, the random generator is seeded so every run produces the same values.
+ * Useful to run the whole pipeline (logging, rollups, queries) without a network.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class MockBackend implements MeasurementBackend {
+
+    private final double ping;
+    private final double download;
+    private final double upload;
+    private final double jitter;
+    private final long duration;
+    private final Random random;
+
+    /**
+     * @param ping     base ping in milliseconds
+     * @param download base download rate in bit/s
+     * @param upload   base upload rate in bit/s
+     * @param jitter   maximum relative deviation from the base values, e.g. 0.1 for ±10%
+     * @param duration time the download and the upload phase take together in milliseconds
+     * @param seed     seed of the random generator
+     */
+    public MockBackend(double ping, double download, double upload, double jitter, long duration, long seed) {
+        this.ping = ping;
+        this.download = download;
+        this.upload = upload;
+        this.jitter = jitter;
+        this.duration = duration;
+        this.random = new Random(seed);
+    }
+
+    public MockBackend() {
+        this(20, 100e6, 40e6, 0.1, 0, 0);
+    }
+
+    @Override
+    public String getName() {
+        return "mock";
+    }
+
+    @Override
+    public void latency(Measurement measurement) {
+        final long start = System.nanoTime();
+        final String id = measurement.getServerID().map(String::valueOf).orElse("0");
+        measurement.setTimestamp(ZonedDateTime.now(ZoneId.of("UTC")));
+        measurement.setServer("Mock", "Server #" + id, "mock://" + id);
+        measurement.setPing(vary(ping));
+        measurement.getTimings().record(Timings.Phase.LATENCY, start);
+    }
+
+    @Override
+    public void bandwidth(Measurement measurement) throws IOException {
+        if (measurement.getTimestamp() == null) latency(measurement);
+        final Timings timings = measurement.getTimings();
+        final long time = measurement.getScope().duration(duration / 2);
+        if (measurement.getScope().isDownload()) {
+            final long start = System.nanoTime();
+            measurement.setDownload(transfer(measurement.getProgress(), Progress.Phase.DOWNLOAD, vary(download), time));
+            timings.record(Timings.Phase.DOWNLOAD, start);
+        }
+        if (measurement.getScope().isUpload()) {
+            final long start = System.nanoTime();
+            measurement.setUpload(transfer(measurement.getProgress(), Progress.Phase.UPLOAD, vary(upload), time));
+            timings.record(Timings.Phase.UPLOAD, start);
+        }
+    }
+
+    /**
+     * Pretend to transfer data at the given rate
+     *
+     * @param time duration in milliseconds, half of the duration of a full test
+     * @return the rate
+     */
+    private double transfer(Progress progress, Progress.Phase phase, double rate, long time) throws IOException {
+        progress.phase(phase, time * 1000000L);
+        try {
+            for (long elapsed = 0; elapsed < time; elapsed += 50) {
+                final long step = Math.min(50, time - elapsed);
+                Thread.sleep(step);
+                progress.transferred((long) (rate / 8 * step / 1000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Speedtest interrupted", e);
+        }
+        return rate;
+    }
+
+    private double vary(double value) {
+        final double factor;
+        synchronized (random) {
+            factor = 1 + jitter * (random.nextDouble() * 2 - 1);
+        }
+        return value * factor;
+    }
+}
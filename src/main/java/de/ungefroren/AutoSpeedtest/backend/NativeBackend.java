@@ -0,0 +1,481 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Pure java implementation of a speedtest against the legacy speedtest.net http endpoints
+ * <p>
+ * The configuration is only downloaded once and the server list is kept in a {@link ServerCatalog},
+ * connections are reused through the keep-alive pool of {@link HttpURLConnection}
+ * and every stream thread reuses its own read buffer.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class NativeBackend implements MeasurementBackend {
+
+    public static final String CONFIG_URL = "https://www.speedtest.net/speedtest-config.php";
+    public static final String SERVERS_URL = "https://www.speedtest.net/speedtest-servers-static.php";
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Java) AutoSpeedtest";
+    private static final int[] DOWNLOAD_SIZES = {350, 500, 750, 1000, 1500, 2000, 2500, 3000, 3500, 4000};
+    private static final int[] UPLOAD_SIZES = {32768, 65536, 131072, 262144, 524288, 1048576, 2097152, 4194304};
+    private static final int LATENCY_SAMPLES = 3;
+    private static final int CLOSEST_SERVERS = 5;
+
+    /**
+     * Payload that is posted during the upload test, shared by all streams
+     */
+    private static final byte[] UPLOAD_PAYLOAD = createPayload(UPLOAD_SIZES[UPLOAD_SIZES.length - 1]);
+
+    private final String configUrl;
+    private final ServerCatalog catalog;
+    private final int streams;
+    private final long testLength;
+    private final ExecutorService pool;
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
+    private volatile double[] clientLocation = null;
+
+    /**
+     * @param configUrl  url of the speedtest-config.php (client location)
+     * @param catalog    the speedtest servers
+     * @param streams    number of parallel connections used for download and upload
+     * @param testLength duration of the download and the upload phase in milliseconds
+     */
+    public NativeBackend(String configUrl, ServerCatalog catalog, int streams, long testLength) {
+        this.configUrl = configUrl;
+        this.catalog = catalog;
+        this.streams = streams;
+        this.testLength = testLength;
+        final AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "Speedtest-stream-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @param configUrl  url of the speedtest-config.php (client location)
+     * @param serversUrl url of the server list, the list is not cached on disk
+     * @param streams    number of parallel connections used for download and upload
+     * @param testLength duration of the download and the upload phase in milliseconds
+     */
+    public NativeBackend(String configUrl, String serversUrl, int streams, long testLength) {
+        this(configUrl, new ServerCatalog(serversUrl, null, 0), streams, testLength);
+    }
+
+    public NativeBackend() {
+        this(CONFIG_URL, new ServerCatalog(SERVERS_URL, ServerCatalog.DEFAULT_CACHE, ServerCatalog.DEFAULT_MAX_AGE), 4, 10000);
+    }
+
+    @Override
+    public String getName() {
+        return "native";
+    }
+
+    private static byte[] createPayload(int size) {
+        final byte[] chars = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".getBytes();
+        final byte[] prefix = "content1=".getBytes();
+        byte[] payload = new byte[size];
+        System.arraycopy(prefix, 0, payload, 0, prefix.length);
+        for (int i = prefix.length; i < size; i++) payload[i] = chars[i % chars.length];
+        return payload;
+    }
+
+    /**
+     * Probe the server and attach the {@link Probe} to the measurement
+     */
+    @Override
+    public void latency(Measurement measurement) throws IOException {
+        final Timings timings = measurement.getTimings();
+        long start = System.nanoTime();
+        final ZonedDateTime timestamp = ZonedDateTime.now(ZoneId.of("UTC"));
+        final List<Server> candidates = candidates(measurement.getServerID());
+        timings.record(Timings.Phase.CONFIG, start);
+        start = System.nanoTime();
+        final Probe probe = probe(candidates, timestamp);
+        timings.record(Timings.Phase.LATENCY, start);
+        final Server server = probe.getServer();
+        measurement.attach(probe);
+        measurement.setPing(probe.getPing());
+        measurement.setServer(server.getSponsor(), server.getName(), server.getUrl());
+        measurement.setTimestamp(probe.getTimestamp());
+    }
+
+    /**
+     * Run the download and upload test against the server that has been probed in the latency phase
+     */
+    @Override
+    public void bandwidth(Measurement measurement) throws IOException {
+        if (!(measurement.attachment() instanceof Probe)) latency(measurement);
+        final Server server = ((Probe) measurement.attachment()).getServer();
+        final Progress progress = measurement.getProgress();
+        final Timings timings = measurement.getTimings();
+        final long length = measurement.getScope().duration(testLength);
+        if (measurement.getScope().isDownload()) {
+            final long start = System.nanoTime();
+            progress.phase(Progress.Phase.DOWNLOAD, length * 1000000L);
+            measurement.setDownload(download(server, progress, length));
+            timings.record(Timings.Phase.DOWNLOAD, start);
+        }
+        if (measurement.getScope().isUpload()) {
+            final long start = System.nanoTime();
+            progress.phase(Progress.Phase.UPLOAD, length * 1000000L);
+            measurement.setUpload(upload(server, progress, length));
+            timings.record(Timings.Phase.UPLOAD, start);
+        }
+    }
+
+    /**
+     * Measure the latency to a server
+     * <p>
+     * This only transfers a few bytes, so it can run in parallel to other tests without distorting them.
+     *
+     * @param serverID the server to probe or empty to pick the server with the lowest latency
+     * @return the probed server and its latency
+     * @throws IOException if no server could be reached
+     */
+    public Probe probe(Optional<Integer> serverID) throws IOException {
+        final ZonedDateTime timestamp = ZonedDateTime.now(ZoneId.of("UTC"));
+        return probe(candidates(serverID), timestamp);
+    }
+
+    /**
+     * @param serverID the server to probe or empty to pick the server with the lowest latency
+     * @return the given server or the servers that are closest to this client
+     */
+    private List<Server> candidates(Optional<Integer> serverID) throws IOException {
+        if (serverID.isPresent()) return Collections.singletonList(getServer(serverID.get()));
+        return getClosestServers(CLOSEST_SERVERS);
+    }
+
+    private Probe probe(List<Server> candidates, ZonedDateTime timestamp) throws IOException {
+        if (candidates.size() == 1) return new Probe(candidates.get(0), latency(candidates.get(0)), timestamp);
+        double best = Double.MAX_VALUE;
+        Server bestServer = null;
+        for (Server candidate : candidates) {
+            double latency;
+            try {
+                latency = latency(candidate);
+            } catch (IOException e) {
+                continue;
+            }
+            if (latency < best) {
+                best = latency;
+                bestServer = candidate;
+            }
+        }
+        if (bestServer == null) throw new IOException("No reachable speedtest server found");
+        return new Probe(bestServer, best, timestamp);
+    }
+
+    /**
+     * @param id id of a speedtest server
+     * @return the server with the given id
+     * @throws IOException if the server list could not be loaded or the server is unknown
+     */
+    public Server getServer(int id) throws IOException {
+        final Server server = catalog.byId(id);
+        if (server == null) throw new IOException("Unknown speedtest server #" + id);
+        return server;
+    }
+
+    /**
+     * @param count number of servers
+     * @return the servers that are closest to the location of this client
+     * @throws IOException if the configuration or the server list could not be loaded
+     */
+    public List<Server> getClosestServers(int count) throws IOException {
+        final double[] client = getClientLocation();
+        return catalog.nearest(client[0], client[1], count);
+    }
+
+    /**
+     * @return the catalog of all speedtest servers
+     */
+    public ServerCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return latitude and longitude of this client as reported by the speedtest config
+     * @throws IOException if the configuration could not be loaded
+     */
+    public double[] getClientLocation() throws IOException {
+        double[] location = clientLocation;
+        if (location == null) {
+            final double[] parsed = new double[2];
+            parseXml(configUrl, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes a) {
+                    if (qName.equals("client")) {
+                        parsed[0] = Double.parseDouble(a.getValue("lat"));
+                        parsed[1] = Double.parseDouble(a.getValue("lon"));
+                    }
+                }
+            });
+            clientLocation = location = parsed;
+        }
+        return location;
+    }
+
+    static void parseXml(String url, DefaultHandler handler) throws IOException {
+        HttpURLConnection connection = open(new URL(url));
+        try (InputStream in = connection.getInputStream()) {
+            SAXParserFactory.newInstance().newSAXParser().parse(in, handler);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Could not parse " + url, e);
+        }
+    }
+
+    /**
+     * Measure the round trip time of a small http request
+     *
+     * @param server the server to ping
+     * @return the average latency in milliseconds
+     * @throws IOException if the server could not be reached
+     */
+    public double latency(Server server) throws IOException {
+        double total = 0;
+        for (double sample : latencies(server, LATENCY_SAMPLES)) total += sample;
+        return total / LATENCY_SAMPLES;
+    }
+
+    /**
+     * Measure the round trip time of multiple small http requests one after another
+     *
+     * @param server  the server to ping
+     * @param samples number of requests
+     * @return the latency of every request in milliseconds
+     * @throws IOException if the server could not be reached
+     */
+    public double[] latencies(Server server, int samples) throws IOException {
+        final byte[] buffer = buffers.get();
+        final double[] latencies = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            final URL url = new URL(server.getBaseUrl() + "latency.txt?x=" + System.nanoTime());
+            final long start = System.nanoTime();
+            HttpURLConnection connection = open(url);
+            try (InputStream in = connection.getInputStream()) {
+                while (in.read(buffer) != -1) ;
+            }
+            latencies[i] = (System.nanoTime() - start) / 1e6;
+        }
+        return latencies;
+    }
+
+    /**
+     * Download random images from the server with multiple connections in parallel
+     *
+     * @param server   the server to test against
+     * @param progress counts the downloaded bytes
+     * @return the download rate in bit/s
+     * @throws IOException if the download failed
+     */
+    public double download(Server server, Progress progress) throws IOException {
+        return download(server, progress, testLength);
+    }
+
+    /**
+     * @param length duration of the download in milliseconds
+     * @see #download(Server, Progress)
+     */
+    public double download(Server server, Progress progress, long length) throws IOException {
+        return parallel(deadline -> downloadStream(server, deadline, progress), length);
+    }
+
+    /**
+     * Upload data to the server with multiple connections in parallel
+     *
+     * @param server   the server to test against
+     * @param progress counts the uploaded bytes
+     * @return the upload rate in bit/s
+     * @throws IOException if the upload failed
+     */
+    public double upload(Server server, Progress progress) throws IOException {
+        return upload(server, progress, testLength);
+    }
+
+    /**
+     * @param length duration of the upload in milliseconds
+     * @see #upload(Server, Progress)
+     */
+    public double upload(Server server, Progress progress, long length) throws IOException {
+        return parallel(deadline -> uploadStream(server, deadline, progress), length);
+    }
+
+    private double parallel(Stream stream, long length) throws IOException {
+        final long start = System.nanoTime();
+        final long deadline = start + length * 1000000L;
+        List<Future<Long>> futures = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) futures.add(pool.submit(() -> stream.transfer(deadline)));
+        long bytes = 0;
+        try {
+            for (Future<Long> future : futures) bytes += future.get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Speedtest interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        return bytes * 8 / seconds;
+    }
+
+    private long downloadStream(Server server, long deadline, Progress progress) throws IOException {
+        final byte[] buffer = buffers.get();
+        long bytes = 0;
+        for (int i = 0; System.nanoTime() < deadline; i = Math.min(i + 1, DOWNLOAD_SIZES.length - 1)) {
+            final int size = DOWNLOAD_SIZES[i];
+            final URL url = new URL(server.getBaseUrl() + "random" + size + "x" + size + ".jpg?x=" + System.nanoTime());
+            HttpURLConnection connection = open(url);
+            try (InputStream in = connection.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bytes += read;
+                    progress.transferred(read);
+                    if (System.nanoTime() >= deadline) {
+                        //don't drain the rest of the image, the connection is not reused anyway
+                        connection.disconnect();
+                        break;
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private long uploadStream(Server server, long deadline, Progress progress) throws IOException {
+        final byte[] buffer = buffers.get();
+        final URL url = new URL(server.getUrl());
+        long bytes = 0;
+        for (int i = 0; System.nanoTime() < deadline; i = Math.min(i + 1, UPLOAD_SIZES.length - 1)) {
+            final int size = UPLOAD_SIZES[i];
+            HttpURLConnection connection = open(url);
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setFixedLengthStreamingMode(size);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            final OutputStream out = connection.getOutputStream();
+            //write in chunks, so the progress is updated and the deadline is checked during large uploads
+            for (int off = 0; off < size; off += buffer.length) {
+                final int len = Math.min(buffer.length, size - off);
+                out.write(UPLOAD_PAYLOAD, off, len);
+                bytes += len;
+                progress.transferred(len);
+                if (off + len < size && System.nanoTime() >= deadline) {
+                    //don't send the rest of the upload, the connection is not reused anyway
+                    connection.disconnect();
+                    return bytes;
+                }
+            }
+            out.close();
+            try (InputStream in = connection.getInputStream()) {
+                while (in.read(buffer) != -1) ;
+            }
+        }
+        return bytes;
+    }
+
+    static HttpURLConnection open(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        final int timeout = Speedtest.getTimeout() * 1000;
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setUseCaches(false);
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        connection.setRequestProperty("Cache-Control", "no-cache");
+        return connection;
+    }
+
+    @FunctionalInterface
+    private interface Stream {
+        long transfer(long deadline) throws IOException;
+    }
+
+    /**
+     * Result of the latency phase of a test
+     */
+    public static class Probe {
+
+        private final Server server;
+        private final double ping;
+        private final ZonedDateTime timestamp;
+
+        public Probe(Server server, double ping, ZonedDateTime timestamp) {
+            this.server = server;
+            this.ping = ping;
+            this.timestamp = timestamp;
+        }
+
+        public Server getServer() {
+            return server;
+        }
+
+        /**
+         * @return latency in milliseconds
+         */
+        public double getPing() {
+            return ping;
+        }
+
+        /**
+         * @return time at which the test was started in UTC
+         */
+        public ZonedDateTime getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs external programs with a deadline
+ * <p>
+ * The command is passed as argument array, so arguments are never split at spaces.
+ * Stdout and stderr are read on their own threads while the process runs, so a process
+ * that writes a lot to stderr can't block on a full pipe. A process that is still running at the
+ * deadline is killed together with all processes it started (on Java 9 and newer, older versions
+ * can only kill the process itself). Failed runs are retried with a growing pause, unless the key
+ * of the run (e.g. the server) failed {@value #GIVE_UP_AFTER} times in a row.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ProcessRunner {
+
+    /**
+     * Consecutive failures of a key after which it is not retried any more until it succeeds again
+     */
+    private static final int GIVE_UP_AFTER = 3;
+    /**
+     * Characters of stderr that are kept for the error message
+     */
+    private static final int STDERR_LIMIT = 4096;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Process-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final List<ProcessRunner> RUNNERS = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final long deadline;
+    private final int retries;
+    private final long backoff;
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+
+    /**
+     * @param name     name of the program in messages
+     * @param deadline default time in milliseconds after which a run is killed
+     * @param retries  how often a failed run is repeated
+     * @param backoff  pause in milliseconds before the first retry, doubled for every further retry
+     */
+    public ProcessRunner(String name, long deadline, int retries, long backoff) {
+        this.name = name;
+        this.deadline = deadline;
+        this.retries = retries;
+        this.backoff = backoff;
+        RUNNERS.add(this);
+    }
+
+    /**
+     * @return all runners that have been created, e.g. to export their failure counters
+     */
+    public static List<ProcessRunner> getRunners() {
+        return Collections.unmodifiableList(RUNNERS);
+    }
+
+    /**
+     * @return name of the program in messages
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Run a command until it exits with 0, at most {@code retries + 1} times
+     *
+     * @param key     what the command runs against, e.g. the server, failures are counted per key
+     * @param command the program and its arguments
+     * @return the output of the successful run
+     * @throws IOException if the program could not be started or every run failed
+     */
+    public Result run(String key, String... command) throws IOException {
+        return run(key, deadline, command);
+    }
+
+    /**
+     * Run a command until it exits with 0, at most {@code retries + 1} times
+     *
+     * @param key      what the command runs against, e.g. the server, failures are counted per key
+     * @param deadline time in milliseconds after which a run is killed, instead of the default
+     * @param command  the program and its arguments
+     * @return the output of the successful run
+     * @throws IOException if the program could not be started or every run failed
+     */
+    public Result run(String key, long deadline, String... command) throws IOException {
+        final Failures counter = failures.computeIfAbsent(key, k -> new Failures());
+        //don't spend the time of retries on something that keeps failing
+        final int attempts = counter.consecutive.get() >= GIVE_UP_AFTER ? 1 : retries + 1;
+        long pause = backoff;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                final Result result = runOnce(deadline, command);
+                counter.consecutive.set(0);
+                return result;
+            } catch (IOException e) {
+                if (e instanceof StartException) throw e;
+                counter.total.incrementAndGet();
+                if (counter.consecutive.incrementAndGet() == GIVE_UP_AFTER) {
+                    System.out.println(name + " failed " + GIVE_UP_AFTER + " times in a row for " + key
+                                               + ", it is not retried until it works again.");
+                }
+                if (attempt >= attempts || Thread.currentThread().isInterrupted()) throw e;
+                System.out.println(e.getMessage() + ", trying again in " + pause / 1000 + " seconds...");
+                try {
+                    Thread.sleep(pause);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                pause *= 2;
+            }
+        }
+    }
+
+    private Result runOnce(long deadline, String... command) throws IOException {
+        long start = System.nanoTime();
+        final Process process;
+        try {
+            process = new ProcessBuilder(command).start();
+        } catch (IOException e) {
+            throw new StartException(e);
+        }
+        final long spawn = System.nanoTime() - start;
+        start = System.nanoTime();
+        final Pump stdout = new Pump(process.getInputStream(), Integer.MAX_VALUE, "Process-stdout");
+        final Pump stderr = new Pump(process.getErrorStream(), STDERR_LIMIT, "Process-stderr");
+        try {
+            if (!process.waitFor(deadline, TimeUnit.MILLISECONDS)) {
+                kill(process);
+                throw new IOException(name + " did not finish within " + deadline / 1000 + " seconds and was killed");
+            }
+            //the pipes are closed once the process has exited, unless a child process still holds them
+            stdout.join(1000);
+            stderr.join(1000);
+        } catch (InterruptedException e) {
+            kill(process);
+            Thread.currentThread().interrupt();
+            throw new IOException(name + " interrupted", e);
+        }
+        final Result result = new Result(process.exitValue(), stdout.get(), stderr.get(), spawn, System.nanoTime() - start);
+        if (result.exitCode != 0) {
+            final String error = result.stderr.trim();
+            throw new ExitException(name + " exited with " + result.exitCode
+                                            + (error.isEmpty() ? "" : ": " + error.substring(error.lastIndexOf('\n') + 1)), result);
+        }
+        return result;
+    }
+
+    /**
+     * @param key the key of a run
+     * @return how often runs with the key failed in a row
+     */
+    public int getConsecutiveFailures(String key) {
+        final Failures counter = failures.get(key);
+        return counter == null ? 0 : counter.consecutive.get();
+    }
+
+    /**
+     * @return number of failed runs per key
+     */
+    public Map<String, Integer> getFailures() {
+        return Collections.unmodifiableMap(failures.entrySet().stream()
+                                                   .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().total.get())));
+    }
+
+    /**
+     * Kill a process that is still running at the deadline, for processes that are talked to while they run
+     *
+     * @param process  the process
+     * @param deadline time in milliseconds
+     * @return the watchdog, cancel it once the process answered
+     */
+    public static Watchdog watch(Process process, long deadline) {
+        return new Watchdog(process, deadline);
+    }
+
+    /**
+     * Kill a process and all processes it started
+     *
+     * @param process the process
+     */
+    public static void kill(Process process) {
+        //ProcessHandle is only available since Java 9
+        List<Object> descendants = new ArrayList<>();
+        Method destroy = null;
+        try {
+            final Class<?> handleClass = Class.forName("java.lang.ProcessHandle");
+            destroy = handleClass.getMethod("destroyForcibly");
+            final Object handle = Process.class.getMethod("toHandle").invoke(process);
+            //collected before the process is killed, afterwards its children can't be found any more
+            ((Stream<?>) handleClass.getMethod("descendants").invoke(handle)).forEach(descendants::add);
+        } catch (ReflectiveOperationException ignored) {
+        }
+        process.destroyForcibly();
+        for (Object descendant : descendants) {
+            try {
+                destroy.invoke(descendant);
+            } catch (ReflectiveOperationException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Output of a run
+     */
+    public static class Result {
+
+        private final int exitCode;
+        private final String stdout;
+        private final String stderr;
+        private final long spawnNanos;
+        private final long runNanos;
+
+        Result(int exitCode, String stdout, String stderr, long spawnNanos, long runNanos) {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.spawnNanos = spawnNanos;
+            this.runNanos = runNanos;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public String getStdout() {
+            return stdout;
+        }
+
+        /**
+         * @return the end of stderr
+         */
+        public String getStderr() {
+            return stderr;
+        }
+
+        /**
+         * @return time in nanoseconds needed to start the process
+         */
+        public long getSpawnNanos() {
+            return spawnNanos;
+        }
+
+        /**
+         * @return time in nanoseconds from the start until the process exited
+         */
+        public long getRunNanos() {
+            return runNanos;
+        }
+    }
+
+    /**
+     * Kills a process if it isn't cancelled before the deadline
+     */
+    public static class Watchdog {
+
+        private final AtomicBoolean fired = new AtomicBoolean(false);
+        private final ScheduledFuture<?> future;
+
+        private Watchdog(Process process, long deadline) {
+            future = WATCHDOG.schedule(() -> {
+                fired.set(true);
+                kill(process);
+            }, deadline, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return false if the process has already been killed
+         */
+        public boolean cancel() {
+            future.cancel(false);
+            return !fired.get();
+        }
+    }
+
+    /**
+     * Reads a stream of a process on its own thread
+     */
+    private static class Pump extends Thread {
+
+        private final InputStream in;
+        private final int limit;
+        private final StringBuilder output = new StringBuilder();
+
+        Pump(InputStream in, int limit, String name) {
+            super(name);
+            this.in = in;
+            this.limit = limit;
+            setDaemon(true);
+            start();
+        }
+
+        @Override
+        public void run() {
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                final char[] buffer = new char[2048];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    synchronized (output) {
+                        output.append(buffer, 0, read);
+                        //only the end is kept
+                        if (output.length() > limit) output.delete(0, output.length() - limit);
+                    }
+                }
+            } catch (IOException ignored) {
+                //the process has been killed
+            }
+        }
+
+        String get() {
+            synchronized (output) {
+                return output.toString();
+            }
+        }
+    }
+
+    /**
+     * The program exited with another code than 0
+     */
+    public static class ExitException extends IOException {
+
+        private final Result result;
+
+        ExitException(String message, Result result) {
+            super(message);
+            this.result = result;
+        }
+
+        /**
+         * @return the output of the run, some programs write their errors to stdout
+         */
+        public Result getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * The program could not be started at all, e.g. because it isn't installed
+     */
+    private static class StartException extends IOException {
+
+        StartException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Failure counters of one key
+     */
+    private static class Failures {
+
+        //several runs against the same key can fail at the same time, e.g. the "auto" tests of a concurrent round
+        private final AtomicInteger consecutive = new AtomicInteger();
+        private final AtomicInteger total = new AtomicInteger();
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters that describe how far a running test is
+ * <p>
+ * Backends only update the counters, which is cheap enough to do for every chunk of data that is transferred.
+ * The counters are sampled and published by another thread.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Progress {
+
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private volatile Phase phase = Phase.LATENCY;
+    private volatile long phaseStart = System.nanoTime();
+    private volatile long expected = 0;
+
+    /**
+     * Start a new phase, this resets the transferred bytes
+     *
+     * @param phase    the phase
+     * @param expected expected duration of the phase in nanoseconds or 0 if unknown
+     */
+    public void phase(Phase phase, long expected) {
+        bytes.reset();
+        this.expected = expected;
+        this.phaseStart = System.nanoTime();
+        this.phase = phase;
+    }
+
+    /**
+     * Start a new phase with unknown duration
+     *
+     * @see #phase(Phase, long)
+     */
+    public void phase(Phase phase) {
+        phase(phase, 0);
+    }
+
+    /**
+     * @param count number of bytes that have been transferred in the current phase
+     */
+    public void transferred(long count) {
+        bytes.add(count);
+        total.add(count);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return bytes transferred in the current phase
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * @return bytes transferred in all phases of the test
+     */
+    public long getTotalBytes() {
+        return total.sum();
+    }
+
+    /**
+     * @return {@link System#nanoTime()} at the start of the current phase
+     */
+    public long getPhaseStart() {
+        return phaseStart;
+    }
+
+    /**
+     * @return expected duration of the current phase in nanoseconds or 0 if unknown
+     */
+    public long getExpected() {
+        return expected;
+    }
+
+    /**
+     * Phases of a test
+     */
+    public enum Phase {
+        /**
+         * Selecting the server and measuring the latency
+         */
+        LATENCY,
+        /**
+         * Waiting for other tests to finish their bandwidth phase
+         */
+        WAITING,
+        /**
+         * Measuring download and upload, used by backends that can't report them separately
+         */
+        BANDWIDTH,
+        DOWNLOAD,
+        UPLOAD,
+        DONE
+    }
+}
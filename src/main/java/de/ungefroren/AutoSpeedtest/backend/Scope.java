@@ -0,0 +1,88 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+/**
+ * What a test measures, smaller scopes transfer less data
+ * <p>
+ * Values that are not measured are NaN. Backends that can't shorten their tests
+ * run them with the full duration.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public enum Scope {
+    /**
+     * Ping, download and upload
+     */
+    FULL("full", true, true, 1),
+    /**
+     * Ping, download and upload with half the duration
+     */
+    SHORT("short", true, true, 0.5),
+    /**
+     * Ping and download with half the duration
+     */
+    DOWNLOAD("download", true, false, 0.5),
+    /**
+     * Only the ping
+     */
+    LATENCY("latency", false, false, 0);
+
+    private final String title;
+    private final boolean download;
+    private final boolean upload;
+    private final double duration;
+
+    Scope(String title, boolean download, boolean upload, double duration) {
+        this.title = title;
+        this.download = download;
+        this.upload = upload;
+        this.duration = duration;
+    }
+
+    /**
+     * @return name of the scope as written to the log
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isDownload() {
+        return download;
+    }
+
+    public boolean isUpload() {
+        return upload;
+    }
+
+    /**
+     * @param length full length of a download or upload phase, in any unit
+     * @return the length of the phase in this scope, at least 1 if the phase is run
+     */
+    public long duration(long length) {
+        return duration == 0 ? 0 : Math.max(1, Math.round(length * duration));
+    }
+}
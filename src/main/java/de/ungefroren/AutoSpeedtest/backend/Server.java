@@ -0,0 +1,107 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+/**
+ * A speedtest.net server
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Server {
+
+    private final int id;
+    private final String sponsor;
+    private final String name;
+    private final String country;
+    private final String url;
+    private final double lat;
+    private final double lon;
+
+    public Server(int id, String sponsor, String name, String country, String url, double lat, double lon) {
+        this.id = id;
+        this.sponsor = sponsor;
+        this.name = name;
+        this.country = country;
+        this.url = url;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getSponsor() {
+        return sponsor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * @return the url of the upload.php of this server
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the url of the directory containing the test files, ending with a slash
+     */
+    public String getBaseUrl() {
+        return url.substring(0, url.lastIndexOf('/') + 1);
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    /**
+     * @return great circle distance to the given coordinates in kilometers
+     */
+    public double distance(double lat, double lon) {
+        double dLat = Math.toRadians(lat - this.lat);
+        double dLon = Math.toRadians(lon - this.lon);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(this.lat)) * Math.cos(Math.toRadians(lat))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + " " + sponsor + " (" + name + ", " + country + ")";
+    }
+}
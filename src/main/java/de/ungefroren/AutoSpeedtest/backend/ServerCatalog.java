@@ -0,0 +1,268 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * List of all speedtest.net servers, cached on disk
+ * <p>
+ * The list is loaded on first use: from the cache file if it exists, otherwise it is downloaded.
+ * If the cache file is older than the maximum age it is still used, but downloaded again in the background.
+ * Servers can be looked up by id, by sponsor or name and by their distance to a location.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ServerCatalog {
+
+    public static final File DEFAULT_CACHE = new File(System.getProperty("user.home"), ".autospeedtest" + File.separator + "servers.tsv");
+    public static final long DEFAULT_MAX_AGE = 7 * 24 * 60 * 60 * 1000L;
+
+    private static final String HEADER = "id\tsponsor\tname\tcountry\turl\tlat\tlon";
+
+    private final String url;
+    private final File cache;
+    private final long maxAge;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Index index = null;
+
+    /**
+     * @param url    url of the server list
+     * @param cache  file in which the server list is cached or null to only keep it in memory
+     * @param maxAge time in milliseconds after which the cached server list is downloaded again
+     */
+    public ServerCatalog(String url, File cache, long maxAge) {
+        this.url = url;
+        this.cache = cache;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return all servers
+     * @throws IOException if the server list could not be loaded
+     */
+    public List<Server> getServers() throws IOException {
+        return index().servers;
+    }
+
+    /**
+     * @param id id of a server
+     * @return the server with the given id or null if it is unknown
+     * @throws IOException if the server list could not be loaded
+     */
+    public Server byId(int id) throws IOException {
+        return index().byId.get(id);
+    }
+
+    /**
+     * @param lat   latitude
+     * @param lon   longitude
+     * @param count number of servers
+     * @return the servers closest to the given location, closest first
+     * @throws IOException if the server list could not be loaded
+     */
+    public List<Server> nearest(double lat, double lon, int count) throws IOException {
+        return index().tree.nearest(lat, lon, count);
+    }
+
+    /**
+     * Find servers for an autocompletion
+     *
+     * @param text  beginning of an id or part of the sponsor or name of a server, not case sensitive
+     * @param limit maximum number of servers
+     * @return servers whose id starts with the text, followed by servers whose sponsor or name contains the text
+     * @throws IOException if the server list could not be loaded
+     */
+    public List<Server> search(String text, int limit) throws IOException {
+        final Index current = index();
+        final String query = text.trim().toLowerCase(Locale.ROOT);
+        List<Server> result = new ArrayList<>();
+        if (query.isEmpty()) return result;
+        if (query.chars().allMatch(Character::isDigit)) {
+            for (Server server : current.servers) {
+                if (String.valueOf(server.getId()).startsWith(query)) {
+                    result.add(server);
+                    if (result.size() >= limit) return result;
+                }
+            }
+        }
+        for (int i = 0; i < current.servers.size(); i++) {
+            if (current.names[i].contains(query) && !result.contains(current.servers.get(i))) {
+                result.add(current.servers.get(i));
+                if (result.size() >= limit) return result;
+            }
+        }
+        return result;
+    }
+
+    private Index index() throws IOException {
+        Index current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null) index = load();
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private Index load() throws IOException {
+        if (cache != null && cache.isFile()) {
+            try {
+                Index cached = new Index(read(cache));
+                if (System.currentTimeMillis() - cache.lastModified() > maxAge) refresh();
+                return cached;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Could not read server cache " + cache + " (" + e + "), downloading the server list");
+            }
+        }
+        return new Index(download());
+    }
+
+    /**
+     * Download the server list again in the background, the old list is used until the download finished
+     */
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) return;
+        Thread thread = new Thread(() -> {
+            try {
+                index = new Index(download());
+            } catch (IOException e) {
+                System.out.println("Could not refresh server list (" + e + "), keeping the cached one");
+            } finally {
+                refreshing.set(false);
+            }
+        }, "Server-catalog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private List<Server> download() throws IOException {
+        final List<Server> servers = new ArrayList<>();
+        NativeBackend.parseXml(url, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes a) {
+                if (qName.equals("server")) {
+                    servers.add(new Server(Integer.parseInt(a.getValue("id")),
+                                           a.getValue("sponsor"),
+                                           a.getValue("name"),
+                                           a.getValue("country"),
+                                           a.getValue("url"),
+                                           Double.parseDouble(a.getValue("lat")),
+                                           Double.parseDouble(a.getValue("lon"))));
+                }
+            }
+        });
+        if (servers.isEmpty()) throw new IOException("Empty server list from " + url);
+        if (cache != null) {
+            try {
+                write(cache, servers);
+            } catch (IOException e) {
+                System.out.println("Could not write server cache " + cache + " (" + e + ")");
+            }
+        }
+        return servers;
+    }
+
+    private static List<Server> read(File file) throws IOException {
+        List<Server> servers = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) throw new IOException("Unknown format");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] columns = line.split("\t", -1);
+                if (columns.length != 7) throw new IOException("Invalid line: " + line);
+                servers.add(new Server(Integer.parseInt(columns[0]), columns[1], columns[2], columns[3], columns[4],
+                                       Double.parseDouble(columns[5]), Double.parseDouble(columns[6])));
+            }
+        }
+        if (servers.isEmpty()) throw new IOException("Empty server cache");
+        return servers;
+    }
+
+    private static void write(File file, List<Server> servers) throws IOException {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+        final File temp = new File(dir, file.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            for (Server server : servers) {
+                writer.newLine();
+                writer.write(server.getId() + "\t" + clean(server.getSponsor()) + "\t" + clean(server.getName()) + "\t"
+                                     + clean(server.getCountry()) + "\t" + clean(server.getUrl()) + "\t"
+                                     + server.getLat() + "\t" + server.getLon());
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * The loaded server list and its lookup structures
+     */
+    private static class Index {
+
+        private final List<Server> servers;
+        private final Map<Integer, Server> byId;
+        /**
+         * Lower case sponsor and name of every server, for the search
+         */
+        private final String[] names;
+        private final KdTree tree;
+
+        private Index(List<Server> servers) {
+            this.servers = Collections.unmodifiableList(servers);
+            this.byId = new HashMap<>(servers.size() * 2);
+            this.names = new String[servers.size()];
+            for (int i = 0; i < servers.size(); i++) {
+                final Server server = servers.get(i);
+                byId.put(server.getId(), server);
+                names[i] = (server.getSponsor() + " " + server.getName()).toLowerCase(Locale.ROOT);
+            }
+            this.tree = new KdTree(servers);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the best speedtest.net server for tests without a fixed server
+ * <p>
+ * The closest servers are probed in parallel, with at most {@code parallelism} probes at the same time,
+ * and ranked by the median of their latency plus their jitter.
+ * The ranking is cached: once it is older than the ttl it is still used, but probed again in the background,
+ * so tests never wait for the server selection except for the very first one.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ServerSelector {
+
+    private final NativeBackend catalog;
+    private final int candidates;
+    private final int samples;
+    private final long ttl;
+    private final Semaphore permits;
+    private final ExecutorService pool;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Ranking ranking = null;
+
+    /**
+     * @param catalog     the backend used to load the server list and to measure the latency
+     * @param candidates  number of closest servers that are probed
+     * @param samples     number of latency samples per server
+     * @param ttl         time in milliseconds after which the ranking is refreshed
+     * @param parallelism maximum number of servers that are probed at the same time
+     */
+    public ServerSelector(NativeBackend catalog, int candidates, int samples, long ttl, int parallelism) {
+        this.catalog = catalog;
+        this.candidates = candidates;
+        this.samples = samples;
+        this.ttl = ttl;
+        this.permits = new Semaphore(parallelism);
+        this.pool = createPool(parallelism);
+    }
+
+    /**
+     * @param catalog the backend used to load the server list and to measure the latency
+     * @param ttl     time in milliseconds after which the ranking is refreshed
+     */
+    public ServerSelector(NativeBackend catalog, long ttl) {
+        this(catalog, 10, 5, ttl, 4);
+    }
+
+    /**
+     * Use virtual threads if the jvm supports them (java 21+), a fixed pool of daemon threads otherwise
+     */
+    private static ExecutorService createPool(int parallelism) {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(parallelism + 1, r -> {
+                Thread t = new Thread(r, "Server-probe-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * @return the id of the best server, only blocks if the servers haven't been probed yet
+     * @throws IOException if no server could be reached
+     */
+    public int best() throws IOException {
+        Ranking current = ranking;
+        if (current == null) {
+            synchronized (this) {
+                if (ranking == null) ranking = probe();
+                current = ranking;
+            }
+        } else if (System.currentTimeMillis() - current.time > ttl) {
+            refresh();
+        }
+        return current.servers.get(0).server.getId();
+    }
+
+    /**
+     * Probe the servers again in the background, e.g. after a test against the best server failed
+     */
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) return;
+        pool.submit(() -> {
+            try {
+                ranking = probe();
+            } catch (Exception e) {
+                System.out.println("Could not refresh server ranking (" + e + "), keeping the old one");
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    /**
+     * @return the current ranking, best server first, empty if the servers haven't been probed yet
+     */
+    public List<Ranked> getRanking() {
+        Ranking current = ranking;
+        return current == null ? Collections.emptyList() : current.servers;
+    }
+
+    private Ranking probe() throws IOException {
+        final long start = System.nanoTime();
+        List<Server> servers = catalog.getClosestServers(candidates);
+        List<Future<Ranked>> futures = new ArrayList<>(servers.size());
+        for (Server server : servers) {
+            futures.add(pool.submit(() -> {
+                permits.acquire();
+                try {
+                    return new Ranked(server, catalog.latencies(server, samples));
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        List<Ranked> ranked = new ArrayList<>(servers.size());
+        for (Future<Ranked> future : futures) {
+            try {
+                ranked.add(future.get());
+            } catch (ExecutionException e) {
+                //unreachable server
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IOException("Server selection interrupted", e);
+            }
+        }
+        if (ranked.isEmpty()) throw new IOException("No reachable speedtest server found");
+        ranked.sort(Comparator.comparingDouble(Ranked::getScore));
+        final Ranked best = ranked.get(0);
+        System.out.printf("Best server: %s (%s) #%d, median %.1fms, jitter %.1fms (%d of %d servers probed in %.1fs)\n",
+                          best.server.getSponsor(), best.server.getName(), best.server.getId(),
+                          best.median, best.jitter, ranked.size(), servers.size(), (System.nanoTime() - start) / 1e9);
+        return new Ranking(Collections.unmodifiableList(ranked), System.currentTimeMillis());
+    }
+
+    private static class Ranking {
+
+        private final List<Ranked> servers;
+        private final long time;
+
+        private Ranking(List<Ranked> servers, long time) {
+            this.servers = servers;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Latency of a probed server
+     */
+    public static class Ranked {
+
+        private final Server server;
+        private final double median;
+        private final double jitter;
+
+        private Ranked(Server server, double[] latencies) {
+            this.server = server;
+            //mean difference between consecutive samples
+            double jitter = 0;
+            for (int i = 1; i < latencies.length; i++) jitter += Math.abs(latencies[i] - latencies[i - 1]);
+            this.jitter = latencies.length > 1 ? jitter / (latencies.length - 1) : 0;
+            double[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            final int mid = sorted.length / 2;
+            this.median = sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+        }
+
+        public Server getServer() {
+            return server;
+        }
+
+        /**
+         * @return median latency in milliseconds
+         */
+        public double getMedian() {
+            return median;
+        }
+
+        /**
+         * @return mean difference between consecutive latency samples in milliseconds
+         */
+        public double getJitter() {
+            return jitter;
+        }
+
+        /**
+         * @return the value the servers are ranked by, lower is better
+         */
+        public double getScore() {
+            return median + jitter;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time spent in the phases of a test, measured with {@link System#nanoTime()}
+ * <p>
+ * Backends add the time of the phases they go through, phases a backend doesn't have stay unset.
+ * If a phase is entered more than once (e.g. when a fallback backend is used) the times are summed up.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Timings {
+
+    private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+    private final long start = System.nanoTime();
+    private volatile long end = 0;
+
+    /**
+     * Add the time since {@code start} to a phase
+     *
+     * @param phase the phase
+     * @param start value of {@link System#nanoTime()} when the phase was entered
+     */
+    public void record(Phase phase, long start) {
+        add(phase, System.nanoTime() - start);
+    }
+
+    /**
+     * @param phase the phase
+     * @param nanos time in nanoseconds that is added to the phase
+     */
+    public void add(Phase phase, long nanos) {
+        //1ns minimum, so a phase that has been entered is never unset
+        this.nanos.addAndGet(phase.ordinal(), Math.max(nanos, 1));
+    }
+
+    /**
+     * @param phase the phase
+     * @return time spent in the phase in nanoseconds or 0 if the test didn't go through the phase
+     */
+    public long get(Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    /**
+     * Mark the end of the test, the time of the {@link Phase#LOG} phase is not included
+     */
+    public void finish() {
+        if (end == 0) end = System.nanoTime();
+    }
+
+    /**
+     * @return time from the creation of this object until {@link #finish()} or until now in nanoseconds
+     */
+    public long getTotal() {
+        final long end = this.end;
+        return (end == 0 ? System.nanoTime() : end) - start;
+    }
+
+    public enum Phase {
+        /**
+         * Server selection through the {@link ServerSelector}
+         */
+        SELECTION("Selection"),
+        /**
+         * Starting an external process
+         */
+        SPAWN("Spawn"),
+        /**
+         * Downloading the configuration and the server list
+         */
+        CONFIG("Config"),
+        LATENCY("Latency"),
+        /**
+         * Waiting for the bandwidth phase, when other tests are measuring their bandwidth
+         */
+        WAIT("Wait"),
+        DOWNLOAD("Download"),
+        UPLOAD("Upload"),
+        /**
+         * Waiting for an external process that runs the whole test
+         */
+        PROCESS("Process"),
+        /**
+         * Parsing the output of an external process
+         */
+        PARSE("Parse"),
+        /**
+         * Writing the result to the log, done after the test so it isn't part of the total
+         */
+        LOG("Log");
+
+        private final String title;
+
+        Phase(String title) {
+            this.title = title;
+        }
+
+        /**
+         * @return name of the phase as used in the csv header
+         */
+        public String getTitle() {
+            return title;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Long running python process that runs speedtests with the speedtest-cli module
+ * <p>
+ * The worker keeps the speedtest-cli configuration and server list in memory,
+ * so only the first test has to pay for python startup and the config download.
+ * Requests and results are exchanged as JSON lines over stdin/stdout.
+ * If the process dies or doesn't answer in time it is killed and restarted with the next request.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class WorkerBackend implements MeasurementBackend {
+
+    private static final String[] PYTHON_COMMANDS = {"python3", "python"};
+    private static final JsonFields READY = new JsonFields("servers");
+    /**
+     * Time after which a worker that didn't answer is killed, at least this or 12 times the timeout
+     */
+    private static final long MIN_DEADLINE = 2 * 60 * 1000L;
+
+    private File script = null;
+
+    private Process process = null;
+    private boolean started = false;
+    private BufferedWriter requests = null;
+    private BufferedReader results = null;
+
+    @Override
+    public String getName() {
+        return "worker";
+    }
+
+    /**
+     * Start the worker process, if it isn't running yet
+     *
+     * @throws IOException if the worker could not be started
+     */
+    public synchronized void start() throws IOException {
+        ensureRunning(new Timings());
+    }
+
+    /**
+     * Run a speedtest in the worker
+     *
+     * @throws IOException if the worker failed or reported an error
+     */
+    @Override
+    public synchronized void bandwidth(Measurement measurement) throws IOException {
+        final Timings timings = measurement.getTimings();
+        ensureRunning(timings);
+        final long start = System.nanoTime();
+        final String line;
+        try {
+            requests.write("{\"server\": " + measurement.getServerID().map(String::valueOf).orElse("null")
+                                   + ", \"download\": " + measurement.getScope().isDownload()
+                                   + ", \"upload\": " + measurement.getScope().isUpload() + "}");
+            requests.newLine();
+            requests.flush();
+            line = readLine();
+        } catch (IOException e) {
+            stop();
+            throw e;
+        }
+        timings.record(Timings.Phase.PROCESS, start);
+        final long parse = System.nanoTime();
+        CliBackend.setResults(measurement, new StringReader(line));
+        timings.record(Timings.Phase.PARSE, parse);
+    }
+
+    /**
+     * @param timings receives the time needed to start the process and to load the configuration, if it is started
+     */
+    private void ensureRunning(Timings timings) throws IOException {
+        if (process != null && process.isAlive()) return;
+        if (started) System.out.println("speedtest-cli worker exited, restarting...");
+        started = true;
+        process = null;
+        if (script == null) {
+            script = File.createTempFile("autospeedtest-worker", ".py");
+            script.deleteOnExit();
+            try (InputStream in = WorkerBackend.class.getResourceAsStream("/worker.py")) {
+                Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        final String timeout = String.valueOf(Speedtest.getTimeout());
+        IOException failure = null;
+        long start = System.nanoTime();
+        for (String python : PYTHON_COMMANDS) {
+            try {
+                process = new ProcessBuilder(python, "-u", script.getAbsolutePath(), timeout).start();
+                break;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (process == null) throw new IOException("Could not start python", failure);
+        timings.record(Timings.Phase.SPAWN, start);
+        start = System.nanoTime();
+        requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        results = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        drainErrors(process);
+        //the worker reports once it has loaded the config and the server list
+        final String ready;
+        try {
+            ready = readLine();
+        } catch (IOException e) {
+            stop();
+            throw new IOException("speedtest-cli worker failed during startup", e);
+        }
+        timings.record(Timings.Phase.CONFIG, start);
+        final Map<String, String> values = READY.read(new StringReader(ready));
+        System.out.println("speedtest-cli worker ready (" + values.get("servers") + " servers cached)");
+    }
+
+    /**
+     * Read the next line of the worker, the worker is killed if it doesn't answer before the deadline
+     */
+    private String readLine() throws IOException {
+        final ProcessRunner.Watchdog watchdog = ProcessRunner.watch(process, Math.max(MIN_DEADLINE, Speedtest.getTimeout() * 12000L));
+        final String line = results.readLine();
+        if (!watchdog.cancel()) throw new IOException("speedtest-cli worker didn't answer in time and was killed");
+        if (line == null) throw new IOException("speedtest-cli worker died");
+        return line;
+    }
+
+    private static void drainErrors(Process process) {
+        Thread pump = new Thread(() -> {
+            try (BufferedReader err = new BufferedReader(new InputStreamReader(process.getErrorStream(),
+                                                                               StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = err.readLine()) != null) System.err.println("| " + line);
+            } catch (IOException ignored) {
+            }
+        }, "Worker-stderr");
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    /**
+     * Stop the worker process, it will be restarted with the next request
+     */
+    public synchronized void stop() {
+        if (process != null) {
+            ProcessRunner.kill(process);
+            process = null;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.convert;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.ungefroren.AutoSpeedtest.Main;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+import de.ungefroren.AutoSpeedtest.store.ResultStore;
+
+/**
+ * Converts log files to one consistent format
+ * <p>
+ * The delimiter and decimal separator of every input file are detected automatically.
+ * All inputs are merged in timestamp order with a k-way merge and streamed to the output,
+ * so only a few rows per input are kept in memory. Rows with the same timestamp and server are only written once.
+ * <p>
+ * Example: merge all logs into one csv
+ * <pre>
+ * java -jar AutoSpeedtest.jar convert -log:old-log.csv,speedtest-log.csv -out:all.csv
+ * </pre>
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Convert {
+
+    private final List<File> files = new ArrayList<>();
+    private final Charset charset = Charset.defaultCharset();
+    private File out = null;
+    private Format format = Format.CSV;
+    private char delimiter = Main.DEFAULT_DELIMETER;
+    private char decimalSeparator = '.';
+
+    private long read = 0;
+    private long written = 0;
+    private long duplicates = 0;
+
+    /**
+     * Run a conversion from the command line
+     *
+     * @param args arguments, see README
+     */
+    public static void main(String[] args) {
+        Convert convert = new Convert();
+        for (String arg : args) {
+            Matcher m1 = Pattern.compile("-*log:(.+)").matcher(arg);
+            Matcher m2 = Pattern.compile("-*out:(.+)").matcher(arg);
+            Matcher m3 = Pattern.compile("-*format:(csv|jsonl|binary)").matcher(arg);
+            Matcher m4 = Pattern.compile("-*delimiter:([^\\s])").matcher(arg);
+            Matcher m5 = Pattern.compile("-*decimalSeparator:([^\\s])").matcher(arg);
+            if (m1.matches()) {
+                Arrays.stream(m1.group(1).split(",")).forEach(f -> convert.files.add(new File(f)));
+            } else if (m2.matches()) {
+                convert.out = new File(m2.group(1));
+            } else if (m3.matches()) {
+                convert.format = Format.valueOf(m3.group(1).toUpperCase());
+            } else if (m4.matches()) {
+                convert.delimiter = m4.group(1).charAt(0);
+            } else if (m5.matches()) {
+                convert.decimalSeparator = m5.group(1).charAt(0);
+            } else if (!arg.startsWith("-")) {
+                //e.g. expanded by the shell from logs/*.csv
+                convert.files.add(new File(arg));
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                System.exit(1);
+            }
+        }
+        if (convert.files.isEmpty()) convert.files.add(new File(Main.DEFAULT_FILE));
+        for (File file : convert.files) {
+            if (!file.isFile()) {
+                System.err.println("Log not found: " + file);
+                System.exit(1);
+            }
+        }
+        if (convert.format == Format.BINARY && convert.out == null) {
+            System.err.println("The binary format needs an output directory: -out:[directory]");
+            System.exit(1);
+        }
+        if (convert.delimiter == convert.decimalSeparator) {
+            System.err.println("Delimiter and decimal separator must be different");
+            System.exit(1);
+        }
+        try {
+            convert.run();
+        } catch (IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Merge all input files into the output
+     *
+     * @throws IOException if a file could not be read or the output could not be written
+     */
+    public void run() throws IOException {
+        List<Source> sources = new ArrayList<>(files.size());
+        try {
+            for (File file : files) {
+                Source source = new Source(file, charset);
+                sources.add(source);
+                System.err.println("Reading " + file + " (delimiter '" + source.getDelimiter()
+                                           + "', decimal separator '" + source.getDecimalSeparator() + "')");
+            }
+            try (Sink sink = open()) {
+                merge(sources, sink);
+            }
+        } finally {
+            for (Source source : sources) source.close();
+        }
+        long broken = 0;
+        long outOfOrder = 0;
+        for (Source source : sources) {
+            broken += source.getBroken();
+            outOfOrder += source.getOutOfOrder();
+        }
+        System.err.println("Converted " + written + " of " + read + " results from " + sources.size() + " files ("
+                                   + duplicates + " duplicates, " + broken + " broken lines skipped)");
+        if (outOfOrder > 0) System.err.println(outOfOrder + " results were too far out of order and are not sorted");
+    }
+
+    /**
+     * K-way merge of the sources by timestamp, the sources are sorted themselves
+     */
+    private void merge(List<Source> sources, Sink sink) throws IOException {
+        PriorityQueue<Head> heap = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (int i = 0; i < sources.size(); i++) {
+            final Speedtest first = sources.get(i).next();
+            if (first != null) heap.add(new Head(first, sources.get(i), i));
+        }
+        //keys of the results with the current timestamp, duplicates always have the same timestamp
+        final Set<String> seen = new HashSet<>();
+        ZonedDateTime current = null;
+        while (!heap.isEmpty()) {
+            final Head head = heap.poll();
+            final Speedtest result = head.result;
+            final Speedtest next = head.source.next();
+            if (next != null) heap.add(new Head(next, head.source, head.index));
+            read++;
+            if (!result.getTimestamp().equals(current)) {
+                current = result.getTimestamp();
+                seen.clear();
+            }
+            if (!seen.add(result.getServerName() + '\n' + result.getLocation() + '\n' + result.getUrl())) {
+                duplicates++;
+                continue;
+            }
+            sink.write(result);
+            written++;
+        }
+    }
+
+    /**
+     * The next result of a source
+     */
+    private static class Head implements Comparable<Head> {
+
+        private final Speedtest result;
+        private final Source source;
+        private final int index;
+
+        Head(Speedtest result, Source source, int index) {
+            this.result = result;
+            this.source = source;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            final int c = Source.BY_TIME.compare(result, other.result);
+            //ties are broken by the order of the files, so the output is stable
+            return c != 0 ? c : Integer.compare(index, other.index);
+        }
+    }
+
+    private Sink open() throws IOException {
+        if (format == Format.BINARY) return new BinarySink(new ResultStore(out));
+        final Writer writer = out == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, format == Format.JSONL ? StandardCharsets.UTF_8 : charset))
+                : Files.newBufferedWriter(out.toPath(), format == Format.JSONL ? StandardCharsets.UTF_8 : charset);
+        return format == Format.JSONL ? new JsonSink(writer, out != null) : new CsvSink(writer, out != null);
+    }
+
+    public enum Format {
+        /**
+         * Same columns as the log, with the given delimiter and decimal separator
+         */
+        CSV,
+        /**
+         * One JSON object per line with the time in ISO 8601, ping in ms and rates in bit/s
+         */
+        JSONL,
+        /**
+         * The binary store that is written with -binary:[directory]
+         */
+        BINARY
+    }
+
+    private interface Sink extends Closeable {
+        void write(Speedtest result) throws IOException;
+    }
+
+    private class CsvSink implements Sink {
+
+        private final Writer writer;
+        private final boolean close;
+
+        CsvSink(Writer writer, boolean close) throws IOException {
+            this.writer = writer;
+            this.close = close;
+            Speedtest.setDecimalSeparator(decimalSeparator);
+            writer.write(Speedtest.csvHeader(delimiter, false));
+        }
+
+        @Override
+        public void write(Speedtest result) throws IOException {
+            writer.write(System.lineSeparator());
+            writer.write(result.valuesAsCsv(delimiter));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (close) {
+                writer.close();
+            } else {
+                //the log has no line break after the last row, the console does
+                writer.write(System.lineSeparator());
+                writer.flush();
+            }
+        }
+    }
+
+    private static class JsonSink implements Sink {
+
+        private final Writer writer;
+        private final boolean close;
+
+        JsonSink(Writer writer, boolean close) {
+            this.writer = writer;
+            this.close = close;
+        }
+
+        @Override
+        public void write(Speedtest result) throws IOException {
+            writer.write(result.valuesAsJson());
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (close) writer.close();
+            else writer.flush();
+        }
+    }
+
+    private static class BinarySink implements Sink {
+
+        private static final int FLUSH_INTERVAL = 4096;
+
+        private final ResultStore store;
+        private long appended = 0;
+
+        BinarySink(ResultStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void write(Speedtest result) throws IOException {
+            store.append(result);
+            if (++appended % FLUSH_INTERVAL == 0) store.flush(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            store.flush(true);
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.convert;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Reads the results of one log file in timestamp order
+ * <p>
+ * Delimiter and decimal separator are detected from the first lines of the file.
+ * Tests that ran in parallel are logged in the order they finished, so the rows are read through a small
+ * reorder window that sorts them by timestamp again.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+class Source implements Closeable {
+
+    /**
+     * Number of rows that are read ahead to restore the timestamp order
+     */
+    private static final int WINDOW = 256;
+    /**
+     * Number of lines that are checked to detect the format
+     */
+    private static final int DETECT_LINES = 100;
+    static final Comparator<Speedtest> BY_TIME = Comparator.comparing(Speedtest::getTimestamp);
+
+    private final File file;
+    private final BufferedReader reader;
+    private final char delimiter;
+    private final char decimalSeparator;
+    private final PriorityQueue<Speedtest> window = new PriorityQueue<>(WINDOW, BY_TIME);
+    private Speedtest last = null;
+    private long broken = 0;
+    private long outOfOrder = 0;
+    private boolean eof = false;
+
+    /**
+     * @param file    the log file
+     * @param charset charset of the file
+     * @throws IOException if the file could not be read or the format could not be detected
+     */
+    Source(File file, Charset charset) throws IOException {
+        this.file = file;
+        final char[] format = detect(file, charset);
+        this.delimiter = format[0];
+        this.decimalSeparator = format[1];
+        this.reader = Files.newBufferedReader(file.toPath(), charset);
+    }
+
+    /**
+     * Detect the delimiter from the header or the character after the timestamp
+     * and the decimal separator from the ping column
+     *
+     * @return delimiter and decimal separator
+     */
+    static char[] detect(File file, Charset charset) throws IOException {
+        char delimiter = 0;
+        char decimalSeparator = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), charset)) {
+            String line;
+            for (int i = 0; i < DETECT_LINES && decimalSeparator == 0 && (line = reader.readLine()) != null; i++) {
+                if (line.startsWith("Time") && line.length() > 4) {
+                    delimiter = line.charAt(4);
+                } else if (isTimestamp(line) && line.length() > 19) {
+                    delimiter = line.charAt(19);
+                    final int end = line.indexOf(delimiter, 20);
+                    for (int j = 20; j < (end < 0 ? line.length() : end); j++) {
+                        final char c = line.charAt(j);
+                        if ((c < '0' || c > '9') && c != '-') {
+                            decimalSeparator = c;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        if (delimiter == 0) throw new IOException(file + " is not a speedtest log");
+        //only a header, the decimal separator doesn't matter
+        if (decimalSeparator == 0) decimalSeparator = delimiter == '.' ? ',' : '.';
+        if (decimalSeparator == delimiter) {
+            throw new IOException(file + " uses '" + delimiter + "' as delimiter and decimal separator, it can't be read");
+        }
+        return new char[]{delimiter, decimalSeparator};
+    }
+
+    private static boolean isTimestamp(String line) {
+        if (line.length() < 19) return false;
+        for (int i = 0; i < 19; i++) {
+            final char c = line.charAt(i);
+            final boolean digit = c >= '0' && c <= '9';
+            if (i == 4 || i == 7 ? c != '-' : i == 10 ? c != ' ' : i == 13 || i == 16 ? c != ':' : !digit) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the next result or null if there are no more results
+     */
+    Speedtest next() throws IOException {
+        fill();
+        final Speedtest next = window.poll();
+        if (next != null) {
+            if (last != null && BY_TIME.compare(next, last) < 0) outOfOrder++;
+            last = next;
+        }
+        return next;
+    }
+
+    private void fill() throws IOException {
+        while (!eof && window.size() < WINDOW) {
+            final String line = reader.readLine();
+            if (line == null) {
+                eof = true;
+                break;
+            }
+            if (line.isEmpty() || line.startsWith("Time")) continue;
+            try {
+                window.add(Speedtest.fromCsv(line, delimiter, decimalSeparator));
+            } catch (IllegalArgumentException e) {
+                broken++;
+            }
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    char getDelimiter() {
+        return delimiter;
+    }
+
+    char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * @return number of lines that could not be parsed
+     */
+    long getBroken() {
+        return broken;
+    }
+
+    /**
+     * @return number of results that were further out of order than the reorder window
+     */
+    long getOutOfOrder() {
+        return outOfOrder;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
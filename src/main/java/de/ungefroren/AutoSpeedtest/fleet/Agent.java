@@ -0,0 +1,261 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.fleet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+import de.ungefroren.AutoSpeedtest.Log;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Sends the results to a {@link Collector}
+ * <p>
+ * Results are collected for a few seconds, so the tests of a round are sent together, and written
+ * as gzipped JSON lines to a spool directory next to the log ({@code [log]-spool}). The spooled batches
+ * are sent oldest first and deleted once the collector accepted them, so results that are produced
+ * while the collector can't be reached are sent later, also after a restart. The pause between
+ * two attempts doubles up to {@value #MAX_BACKOFF_SECONDS} seconds while the collector is unreachable.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Agent implements Consumer<Speedtest> {
+
+    private static final long BATCH_SECONDS = 10;
+    private static final long MAX_BACKOFF_SECONDS = 10 * 60;
+    private static final int TIMEOUT = 10 * 1000;
+    private static final long FLUSH_SECONDS = 60;
+    private static final String SUFFIX = ".jsonl.gz";
+
+    private final URL url;
+    private final File spool;
+    private final List<Speedtest> pending = new ArrayList<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Agent");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private long sequence = 0;
+    private long backoff = BATCH_SECONDS;
+    private long retryAt = 0;
+    private boolean reachable = true;
+
+    /**
+     * @param log       the log of the results, the spool directory is created next to it
+     * @param collector base url of the collector, e.g. {@code http://collector:8090}
+     * @param site      name of this site, see {@link Collector#isValidSite(String)}
+     * @throws IOException if the url is invalid or the spool directory can't be created
+     */
+    public Agent(Log log, String collector, String site) throws IOException {
+        if (!Collector.isValidSite(site)) throw new IOException("Invalid site name: " + site);
+        this.url = new URL((collector.endsWith("/") ? collector : collector + "/") + "results/" + site);
+        final File logFile = log.getFile().getAbsoluteFile();
+        String name = logFile.getName();
+        if (name.toLowerCase().endsWith(".csv")) name = name.substring(0, name.length() - 4);
+        this.spool = new File(logFile.getParentFile(), name + "-spool");
+        if (!spool.isDirectory() && !spool.mkdirs()) throw new IOException("Could not create " + spool);
+    }
+
+    public File getSpool() {
+        return spool;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * Send the batches that are left from the last run and start sending new results
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::tick, 0, BATCH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Write the results that have not been spooled yet to the spool, they are sent with the next start
+     */
+    public void stop() {
+        executor.shutdownNow();
+        try {
+            spool();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Spool the pending results and try to send all spooled batches now, waits until they are sent or sending failed
+     */
+    public void flush() {
+        try {
+            executor.submit(() -> {
+                retryAt = 0;
+                tick();
+            }).get(FLUSH_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            System.out.println("Could not send the results to the collector in time, they are sent with the next start.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a result, it is spooled and sent within a few seconds
+     *
+     * @param speedtest a completed speedtest
+     */
+    @Override
+    public void accept(Speedtest speedtest) {
+        synchronized (pending) {
+            pending.add(speedtest);
+        }
+    }
+
+    private void tick() {
+        try {
+            spool();
+            if (System.currentTimeMillis() >= retryAt) send();
+        } catch (IOException | RuntimeException e) {
+            //an exception would cancel all following ticks
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Write the pending results as one batch to the spool directory
+     */
+    private synchronized void spool() throws IOException {
+        final List<Speedtest> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        //the names sort in the order the batches have been written
+        final String name = String.format("batch-%013d-%04d", System.currentTimeMillis(), sequence++ % 10000);
+        final File temp = new File(spool, name + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temp.toPath())), StandardCharsets.UTF_8)) {
+            for (Speedtest speedtest : batch) {
+                writer.write(speedtest.valuesAsJson());
+                writer.write('\n');
+            }
+        }
+        Files.move(temp.toPath(), new File(spool, name + SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Send all spooled batches, oldest first, until one fails
+     */
+    private void send() {
+        final File[] files = spool.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null || files.length == 0) return;
+        Arrays.sort(files);
+        int sent = 0;
+        for (File file : files) {
+            final int status;
+            try {
+                status = post(file);
+            } catch (IOException e) {
+                unreachable(e.toString(), files.length - sent);
+                return;
+            }
+            if (status >= 200 && status < 300) {
+                if (!file.delete()) System.out.println("Could not delete sent batch " + file);
+            } else if (status >= 400 && status < 500) {
+                //sending it again won't help, keep it for inspection
+                System.out.println("Collector rejected " + file.getName() + " (HTTP " + status + "), moving it aside.");
+                if (!file.renameTo(new File(spool, file.getName() + ".rejected"))) file.delete();
+            } else {
+                unreachable("HTTP " + status, files.length - sent);
+                return;
+            }
+            sent++;
+        }
+        if (!reachable) System.out.println("Collector reachable again, sent " + sent + " spooled batches.");
+        reachable = true;
+        backoff = BATCH_SECONDS;
+        retryAt = 0;
+    }
+
+    private void unreachable(String reason, int left) {
+        if (reachable) {
+            System.out.println("Could not send results to the collector (" + reason + "), " + left
+                                       + " batches are kept in " + spool + " until it is reachable again.");
+        }
+        reachable = false;
+        retryAt = System.currentTimeMillis() + backoff * 1000;
+        backoff = Math.min(backoff * 2, MAX_BACKOFF_SECONDS);
+    }
+
+    /**
+     * @return the http status code
+     */
+    private int post(File file) throws IOException {
+        final byte[] body = Files.readAllBytes(file.toPath());
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/x-ndjson");
+        connection.setRequestProperty("Content-Encoding", "gzip");
+        //lets the collector recognize a batch that is sent again because the response got lost
+        connection.setRequestProperty("X-Batch", file.getName());
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        final int status = connection.getResponseCode();
+        //read the response, so the connection can be reused
+        try {
+            connection.getInputStream().close();
+        } catch (IOException ignored) {
+            if (connection.getErrorStream() != null) connection.getErrorStream().close();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.fleet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.ungefroren.AutoSpeedtest.Main;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Receives the results of many {@link Agent}s and writes them to one log per site
+ * <p>
+ * Agents post gzipped JSON lines to {@code /results/[site]}. The results of every site are appended to
+ * {@code [directory]/[site].csv} in the format of the normal log, so the files can be used with {@code query},
+ * {@code convert} and the chart. Requests are handled by a thread pool, batches of different sites are written
+ * in parallel and batches of one site one after another. A batch is only acknowledged once it has been written,
+ * a batch that is sent again because the acknowledgement got lost is recognized by its name and not written twice.
+ * <p>
+ * Example: collect the results of all agents in {@code collected}
+ * <pre>
+ * java -jar AutoSpeedtest.jar collect -listen:8090 -out:collected
+ * </pre>
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Collector {
+
+    public static final int DEFAULT_PORT = 8090;
+
+    private static final Pattern SITE = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    /**
+     * Decompressed size of a batch above which it is rejected
+     */
+    private static final long MAX_BATCH = 16 * 1024 * 1024;
+    /**
+     * Names of the last batches of a site that are remembered to recognize a batch that is sent again
+     */
+    private static final int REMEMBERED_BATCHES = 1000;
+
+    private final File directory;
+    private final char delimiter;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private HttpServer httpServer = null;
+
+    /**
+     * @param directory directory of the logs of the sites, is created if it doesn't exist
+     * @param delimiter delimiter of the logs
+     */
+    public Collector(File directory, char delimiter) {
+        this.directory = directory;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Run the collector from the command line
+     *
+     * @param args arguments, see README
+     */
+    public static void main(String[] args) {
+        InetSocketAddress address = new InetSocketAddress(DEFAULT_PORT);
+        File out = new File("collected");
+        char delimiter = Main.DEFAULT_DELIMETER;
+        for (String arg : args) {
+            Matcher m1 = Pattern.compile("-*listen:(([^\\s:]+):)?(\\d+)").matcher(arg);
+            Matcher m2 = Pattern.compile("-*out:(.+)").matcher(arg);
+            Matcher m3 = Pattern.compile("-*delimiter:([^\\s])").matcher(arg);
+            Matcher m4 = Pattern.compile("-*decimalSeparator:([^\\s])").matcher(arg);
+            if (m1.matches()) {
+                final int port = Integer.parseInt(m1.group(3));
+                address = m1.group(2) == null ? new InetSocketAddress(port) : new InetSocketAddress(m1.group(2), port);
+            } else if (m2.matches()) {
+                out = new File(m2.group(1));
+            } else if (m3.matches()) {
+                delimiter = m3.group(1).charAt(0);
+            } else if (m4.matches()) {
+                Speedtest.setDecimalSeparator(m4.group(1).charAt(0));
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                System.exit(1);
+            }
+        }
+        if (delimiter == Speedtest.getDecimalSeparator()) {
+            System.err.println("Delimiter and decimal separator must be different");
+            System.exit(1);
+        }
+        try {
+            new Collector(out, delimiter).serve(address);
+        } catch (IOException e) {
+            System.err.println("Could not start the collector: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param site name of a site
+     * @return if the name can be used as site, only letters, digits, . _ and -
+     */
+    public static boolean isValidSite(String site) {
+        return SITE.matcher(site).matches() && !site.startsWith(".");
+    }
+
+    /**
+     * Accept results at {@code /results/[site]}
+     *
+     * @param address address to listen on
+     * @throws IOException if the address can't be bound or the directory can't be created
+     */
+    public synchronized void serve(InetSocketAddress address) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create " + directory);
+        if (httpServer != null) httpServer.stop(0);
+        //a backlog for many agents that send at the same time after a round
+        httpServer = HttpServer.create(address, 256);
+        httpServer.createContext("/results/", this::handle);
+        final AtomicInteger threads = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), r -> {
+            Thread t = new Thread(r, "Collector-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        httpServer.setExecutor(pool);
+        httpServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "Collector-shutdown"));
+        System.out.println("Collecting results at http://" + address.getHostString() + ":"
+                                   + httpServer.getAddress().getPort() + "/results/[site] into " + directory.getAbsolutePath());
+    }
+
+    /**
+     * @return the port the collector listens on, useful if it was started on port 0
+     */
+    public synchronized int getPort() {
+        return httpServer == null ? -1 : httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting results and close the logs
+     */
+    public synchronized void stop() {
+        if (httpServer != null) {
+            httpServer.stop(1);
+            ((ExecutorService) httpServer.getExecutor()).shutdown();
+            httpServer = null;
+        }
+        for (Site site : sites.values()) site.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final String name = exchange.getRequestURI().getPath().substring("/results/".length());
+            if (!isValidSite(name)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            final List<Speedtest> results = new ArrayList<>();
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) in = new GZIPInputStream(in);
+            //limit the decompressed bytes before they are read into lines, a line without an end could fill the memory
+            in = new LimitedInputStream(in, MAX_BATCH);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+                    results.add(Speedtest.fromJson(line));
+                }
+            } catch (BatchTooLargeException e) {
+                System.out.println("Rejected batch from " + name + " (" + exchange.getRemoteAddress() + "): " + e.getMessage());
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            } catch (IllegalArgumentException | IOException e) {
+                System.out.println("Invalid batch from " + name + " (" + exchange.getRemoteAddress() + "): " + e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            final Site site = sites.computeIfAbsent(name, Site::new);
+            site.write(exchange.getRequestHeaders().getFirst("X-Batch"), results);
+            exchange.sendResponseHeaders(204, -1);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Log of one site
+     */
+    private class Site {
+
+        private final File file;
+        private final Map<String, Boolean> batches = new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > REMEMBERED_BATCHES;
+            }
+        };
+        private FileOutputStream stream = null;
+        private BufferedWriter writer = null;
+
+        Site(String name) {
+            this.file = new File(directory, name + ".csv");
+        }
+
+        /**
+         * Append the results and sync them to disk
+         *
+         * @param batch name of the batch or null if the agent didn't send one
+         */
+        synchronized void write(String batch, List<Speedtest> results) throws IOException {
+            if (batch != null && batches.containsKey(batch)) return;
+            if (writer == null) {
+                final boolean exists = file.exists();
+                stream = new FileOutputStream(file, true);
+                writer = new BufferedWriter(new OutputStreamWriter(stream, Charset.defaultCharset()));
+                if (!exists) {
+                    System.out.println("New site " + file.getName().substring(0, file.getName().length() - 4) + ", writing to " + file);
+                    writer.write(Speedtest.csvHeader(delimiter, false));
+                }
+            }
+            for (Speedtest result : results) {
+                writer.newLine();
+                writer.write(result.valuesAsCsv(delimiter));
+            }
+            writer.flush();
+            stream.getFD().sync();
+            if (batch != null) batches.put(batch, Boolean.TRUE);
+        }
+
+        synchronized void close() {
+            if (writer == null) return;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Stream that fails with a {@link BatchTooLargeException} once more than a given number of bytes is read
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0 && --remaining < 0) throw new BatchTooLargeException(limit);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            //never read more than one byte above the limit
+            final int read = super.read(b, off, (int) Math.min(len, remaining + 1));
+            if (read > 0 && (remaining -= read) < 0) throw new BatchTooLargeException(limit);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(Math.min(n, remaining + 1));
+            if ((remaining -= skipped) < 0) throw new BatchTooLargeException(limit);
+            return skipped;
+        }
+    }
+
+    /**
+     * Thrown if a batch is larger than {@link #MAX_BATCH} after decompression
+     */
+    private static class BatchTooLargeException extends IOException {
+
+        BatchTooLargeException(long limit) {
+            super("more than " + limit + " bytes");
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.gui;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ungefroren.AutoSpeedtest.Log;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Plots ping, download and upload of all results in the log over time, one line per server
+ * <p>
+ * The history is read from the log once, new results are added as they are logged.
+ * Every line is downsampled to the width of the panel before it is drawn, so the amount of data doesn't matter.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ChartPanel extends JPanel {
+
+    private static final String[] TITLES = {"Ping (ms)", "Download (Mbit/s)", "Upload (Mbit/s)"};
+    private static final Color[] COLORS = {
+            new Color(31, 119, 180), new Color(255, 127, 14), new Color(44, 160, 44), new Color(214, 39, 40),
+            new Color(148, 103, 189), new Color(140, 86, 75), new Color(227, 119, 194), new Color(127, 127, 127)
+    };
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("dd.MM. HH:mm").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+    private static final long DATE_RANGE = 30 * 24 * 60 * 60 * 1000L;
+    private static final DecimalFormat NUMBER = new DecimalFormat("0.#");
+    private static final int LEFT = 50;
+    private static final int RIGHT = 10;
+    private static final int TOP = 20;
+    private static final int GAP = 30;
+
+    /**
+     * Results per server, only accessed on the EDT
+     */
+    private final Map<String, Series> series = new LinkedHashMap<>();
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+    private String status = "Loading...";
+
+    public ChartPanel() {
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(600, 400));
+    }
+
+    /**
+     * Show the results of a log: the ones that are already in the file and all that are logged from now on
+     *
+     * @param log the log
+     */
+    public void show(Log log) {
+        final long end;
+        try {
+            //everything that is logged after this is added by the listener
+            log.flush();
+            end = log.getFile().length();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        log.addListener(speedtest -> SwingUtilities.invokeLater(() -> {
+            add(speedtest);
+            repaint();
+        }));
+        new SwingWorker<List<Speedtest>, Void>() {
+            @Override
+            protected List<Speedtest> doInBackground() throws Exception {
+                return read(log.getFile(), end, log.getDelimiter());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get().forEach(ChartPanel.this::add);
+                    status = null;
+                } catch (Exception e) {
+                    status = "Could not read " + log.getFile().getName() + ": " + e.getCause();
+                }
+                repaint();
+            }
+        }.execute();
+    }
+
+    private static List<Speedtest> read(File file, long end, char delimiter) throws IOException {
+        List<Speedtest> results = new ArrayList<>();
+        if (!file.exists()) return results;
+        final char decimalSeparator = Speedtest.getDecimalSeparator();
+        try (InputStream in = Files.newInputStream(file.toPath());
+             BufferedReader reader = new BufferedReader(new InputStreamReader(new Limited(in, end), Charset.defaultCharset()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    results.add(Speedtest.fromCsv(line, delimiter, decimalSeparator));
+                } catch (IllegalArgumentException ignored) {
+                    //header or broken line
+                }
+            }
+        }
+        return results;
+    }
+
+    private void add(Speedtest speedtest) {
+        final long time = speedtest.getTimestamp().toInstant().toEpochMilli();
+        series.computeIfAbsent(speedtest.getServerName(), s -> new Series())
+                .add(time, speedtest.getPing(), speedtest.getDownload() / 1000000, speedtest.getUpload() / 1000000);
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        super.paintComponent(graphics);
+        Graphics2D g = (Graphics2D) graphics;
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        final FontMetrics metrics = g.getFontMetrics();
+        if (series.isEmpty()) {
+            final String text = status != null ? status : "No results yet";
+            g.setColor(Color.GRAY);
+            g.drawString(text, (getWidth() - metrics.stringWidth(text)) / 2, getHeight() / 2);
+            return;
+        }
+        //legend
+        int x = LEFT;
+        int color = 0;
+        for (String server : series.keySet()) {
+            g.setColor(COLORS[color++ % COLORS.length]);
+            g.fillRect(x, TOP / 2 - 4, 8, 8);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(server, x + 12, TOP / 2 + metrics.getAscent() / 2 - 1);
+            x += metrics.stringWidth(server) + 30;
+        }
+        final int width = getWidth() - LEFT - RIGHT;
+        final int height = (getHeight() - TOP - 3 * GAP) / 3;
+        if (width < 10 || height < 10) return;
+        final long timeRange = Math.max(maxTime - minTime, 1);
+        for (int value = 0; value < 3; value++) {
+            final int top = TOP + GAP / 2 + value * (height + GAP);
+            double max = 0;
+            for (Series s : series.values()) max = Math.max(max, s.max[value]);
+            if (max <= 0) max = 1;
+            //frame, title and grid
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(TITLES[value], LEFT, top - 4);
+            g.setColor(Color.LIGHT_GRAY);
+            g.drawRect(LEFT, top, width, height);
+            for (int i = 0; i <= 4; i++) {
+                final int y = top + height - i * height / 4;
+                g.setColor(new Color(235, 235, 235));
+                if (i > 0 && i < 4) g.drawLine(LEFT + 1, y, LEFT + width - 1, y);
+                g.setColor(Color.GRAY);
+                final String label = NUMBER.format(max * i / 4);
+                g.drawString(label, LEFT - 4 - metrics.stringWidth(label), y + metrics.getAscent() / 2 - 1);
+            }
+            //lines
+            color = 0;
+            g.setStroke(new BasicStroke(1.2f));
+            for (Series s : series.values()) {
+                g.setColor(COLORS[color++ % COLORS.length]);
+                final int[] points = s.sampled(value, width);
+                Path2D.Double path = new Path2D.Double();
+                boolean gap = true;
+                for (int i = 0; i < points.length; i++) {
+                    //results without this value interrupt the line
+                    if (Double.isNaN(s.values[value][points[i]])) {
+                        gap = true;
+                        continue;
+                    }
+                    final double px = LEFT + (double) (s.times[points[i]] - minTime) * width / timeRange;
+                    final double py = top + height - s.values[value][points[i]] * height / max;
+                    if (gap) path.moveTo(px, py);
+                    else path.lineTo(px, py);
+                    gap = false;
+                }
+                if (path.getCurrentPoint() == null) continue;
+                if (points.length == 1) g.fillOval((int) path.getCurrentPoint().getX() - 2, (int) path.getCurrentPoint().getY() - 2, 4, 4);
+                else g.draw(path);
+            }
+            g.setStroke(new BasicStroke());
+        }
+        //time axis
+        g.setColor(Color.GRAY);
+        final int bottom = TOP + GAP / 2 + 3 * height + 2 * GAP + metrics.getAscent() + 2;
+        final int ticks = Math.max(1, Math.min(5, width / 120));
+        final DateTimeFormatter format = timeRange > DATE_RANGE ? DATE : TIME;
+        for (int i = 0; i <= ticks; i++) {
+            final String label = format.format(Instant.ofEpochMilli(minTime + timeRange * i / ticks));
+            final int px = LEFT + width * i / ticks - (i == 0 ? 0 : i == ticks ? metrics.stringWidth(label) : metrics.stringWidth(label) / 2);
+            g.drawString(label, px, bottom);
+        }
+    }
+
+    /**
+     * Results of one server, sorted by time
+     */
+    private static class Series {
+
+        private long[] times = new long[64];
+        private final double[][] values = new double[3][64];
+        private final double[] max = new double[3];
+        private int size = 0;
+
+        /**
+         * Downsampled indices per value and the width and size they were computed for
+         */
+        private final int[][] sampled = new int[3][];
+        private int sampledWidth = -1;
+        private int sampledSize = -1;
+
+        void add(long time, double... point) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                for (int v = 0; v < 3; v++) values[v] = Arrays.copyOf(values[v], size * 2);
+            }
+            //results usually arrive in order, otherwise move the later ones
+            int i = size;
+            while (i > 0 && times[i - 1] > time) i--;
+            if (i < size) {
+                System.arraycopy(times, i, times, i + 1, size - i);
+                for (int v = 0; v < 3; v++) System.arraycopy(values[v], i, values[v], i + 1, size - i);
+            }
+            times[i] = time;
+            for (int v = 0; v < 3; v++) {
+                values[v][i] = point[v];
+                //NaN if not measured
+                if (!Double.isNaN(point[v])) max[v] = Math.max(max[v], point[v]);
+            }
+            size++;
+        }
+
+        int[] sampled(int value, int width) {
+            if (width != sampledWidth || size != sampledSize) {
+                for (int v = 0; v < 3; v++) sampled[v] = Lttb.downsample(times, values[v], size, width);
+                sampledWidth = width;
+                sampledSize = size;
+            }
+            return sampled[value];
+        }
+    }
+
+    /**
+     * Stream that ends after a number of bytes
+     */
+    private static class Limited extends InputStream {
+
+        private final InputStream in;
+        private long remaining;
+
+        Limited(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            final int b = in.read();
+            if (b != -1) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            final int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.gui;
+
+import javax.swing.BorderFactory;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrollable text area that displays everything written to its {@link #printer()}
+ * <p>
+ * Output is collected and displayed at most every {@value #FRAME_INTERVAL}ms,
+ * only the last lines are kept and the rest can be spilled to a file.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ConsolePanel extends JScrollPane {
+
+    public static final int DEFAULT_LINES = 5000;
+
+    /**
+     * Time in milliseconds during which output is collected before it is displayed
+     */
+    private static final int FRAME_INTERVAL = 50;
+
+    private final JTextArea content;
+    private final Timer refresh = new Timer(FRAME_INTERVAL, e -> refresh());
+
+    /**
+     * Output that has been written but not displayed yet, guarded by itself
+     */
+    private final StringBuilder pending = new StringBuilder();
+    private volatile int maxLines = DEFAULT_LINES;
+    private volatile Writer spill = null;
+    private ExecutorService spillWriter = null;
+
+    /**
+     * @param title title of the border
+     */
+    public ConsolePanel(String title) {
+        content = new JTextArea();
+        content.setEditable(false);
+        setViewportView(content);
+        setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        setBorder(BorderFactory.createTitledBorder(title));
+        refresh.setRepeats(false);
+    }
+
+    /**
+     * Limit the number of lines that are displayed
+     *
+     * @param lines maximum number of lines, older lines are removed
+     * @param spill file to which all output is appended, so removed lines are not lost, or null
+     * @throws IOException if the spill file could not be opened
+     */
+    public void limitOutput(int lines, File spill) throws IOException {
+        this.maxLines = Math.max(1, lines);
+        if (spill != null) {
+            this.spillWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "Console-spill");
+                t.setDaemon(true);
+                return t;
+            });
+            this.spill = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spill, true), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Write the pending output and everything that is still queued to the spill file and close it
+     * <p>
+     * Output that is written afterwards is still displayed, but not spilled anymore.
+     */
+    public void close() {
+        final Writer writer;
+        synchronized (pending) {
+            spill(pending.toString());
+            writer = spill;
+            spill = null;
+        }
+        if (writer == null) return;
+        spillWriter.shutdown();
+        try {
+            spillWriter.awaitTermination(5, TimeUnit.SECONDS);
+            writer.close();
+        } catch (InterruptedException | IOException ignored) {
+            //the console is the only place the error could be reported
+        }
+    }
+
+    /**
+     * @return a PrintStream that writes all output to this console
+     */
+    public PrintStream printer() {
+        try {
+            return new PrintStream(new Out(), true, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the number of lines that are displayed
+     */
+    public int getLineCount() {
+        return content.getLineCount();
+    }
+
+    /**
+     * Add text to the output, it is displayed with the next refresh
+     */
+    private void print(CharSequence text) {
+        synchronized (pending) {
+            final boolean schedule = pending.length() == 0;
+            pending.append(text);
+            //if the ui doesn't keep up, only keep the last lines
+            if (pending.length() > maxLines * 200) {
+                int cut = pending.indexOf("\n", pending.length() - maxLines * 100);
+                if (cut != -1) {
+                    spill(pending.substring(0, cut + 1));
+                    pending.delete(0, cut + 1);
+                }
+            }
+            if (schedule) refresh.restart();
+        }
+    }
+
+    /**
+     * Display the pending output and remove the oldest lines if there are too many, must be called on the EDT
+     */
+    public void refresh() {
+        final String text;
+        synchronized (pending) {
+            text = pending.toString();
+            pending.setLength(0);
+            spill(text);
+        }
+        if (text.isEmpty()) return;
+        content.append(text);
+        final int excess = content.getLineCount() - maxLines;
+        if (excess > 0) {
+            try {
+                content.getDocument().remove(0, content.getLineStartOffset(excess));
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+            }
+        }
+        content.setCaretPosition(content.getDocument().getLength());
+    }
+
+    /**
+     * Append text to the spill file, must be called in the order the text was written
+     */
+    private void spill(String lines) {
+        final Writer writer = spill;
+        if (writer == null || lines.isEmpty()) return;
+        spillWriter.submit(() -> {
+            try {
+                writer.write(lines);
+                writer.flush();
+            } catch (IOException ignored) {
+                //the console is the only place the error could be reported
+            }
+        });
+    }
+
+    /**
+     * Stream that decodes UTF-8 and passes the text to the console
+     */
+    public class Out extends OutputStream {
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        /**
+         * Bytes that haven't been decoded yet, e.g. the first bytes of a multi byte character
+         */
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+
+        @Override
+        public synchronized void write(int b) {
+            if (!bytes.hasRemaining()) decode();
+            bytes.put((byte) b);
+            if (b == '\n') decode();
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                final int n = Math.min(len, bytes.remaining());
+                bytes.put(b, off, n);
+                off += n;
+                len -= n;
+                decode();
+            }
+        }
+
+        @Override
+        public synchronized void flush() {
+            decode();
+        }
+
+        private void decode() {
+            bytes.flip();
+            while (true) {
+                final boolean overflow = decoder.decode(bytes, chars, false).isOverflow();
+                chars.flip();
+                if (chars.hasRemaining()) print(chars);
+                chars.clear();
+                if (!overflow) break;
+            }
+            bytes.compact();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.gui;
+
+import javax.swing.UIManager;
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
+
+import de.ungefroren.AutoSpeedtest.Log;
+import de.ungefroren.AutoSpeedtest.ProgressMonitor;
+import de.ungefroren.AutoSpeedtest.backend.ServerCatalog;
+
+/**
+ * Starts the windows of the program
+ * <p>
+ * {@link de.ungefroren.AutoSpeedtest.Main} only talks to the gui through this class, so AWT and Swing are
+ * only loaded if the gui is shown. Loading them takes a noticeable part of the startup on a headless server.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Gui {
+
+    private final SpeedtestFrame frame;
+
+    private Gui(SpeedtestFrame frame) {
+        this.frame = frame;
+    }
+
+    /**
+     * Show the main window if the program wasn't started from a console and there is a display,
+     * or if it was started with {@code -gui:true}
+     *
+     * @param args the arguments of the program
+     * @return the gui or null if it isn't shown
+     */
+    public static Gui start(String[] args) {
+        boolean show = System.console() == null && !GraphicsEnvironment.isHeadless();
+        for (String arg : args) {
+            if (arg.matches("-*gui:true")) show = true;
+        }
+        if (!show) return null;
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return new Gui(new SpeedtestFrame("Log:").useAsOutput());
+    }
+
+    /**
+     * @see SpeedtestFrame#limitOutput(int, File)
+     */
+    public void limitOutput(int lines, File spill) throws IOException {
+        frame.limitOutput(lines, spill);
+    }
+
+    /**
+     * Write the remaining output to the spill file, should be the last thing done on shutdown
+     *
+     * @see ConsolePanel#close()
+     */
+    public void closeOutput() {
+        frame.closeOutput();
+    }
+
+    /**
+     * Show the setting dialog and wait until it is closed
+     *
+     * @param catalog servers that are suggested in the dialog
+     * @return the dialog with the settings
+     */
+    public SetupFrame setup(ServerCatalog catalog) {
+        return new SetupFrame(frame, catalog);
+    }
+
+    /**
+     * Show the results of the log in the chart and the progress of the tests
+     *
+     * @param log the log
+     */
+    public void show(Log log) {
+        frame.showHistory(log);
+        ProgressMonitor.getInstance().addListener(frame::showProgress);
+    }
+
+    /**
+     * @see SpeedtestFrame#indicateSpeedtest()
+     */
+    public void indicateSpeedtest() {
+        frame.indicateSpeedtest();
+    }
+
+    /**
+     * @see SpeedtestFrame#indicateSpeedtest(String)
+     */
+    public void indicateSpeedtest(String label) {
+        frame.indicateSpeedtest(label);
+    }
+
+    /**
+     * @see SpeedtestFrame#endSpeedtest()
+     */
+    public void endSpeedtest() {
+        frame.endSpeedtest();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.gui;
+
+/**
+ * Largest-triangle-three-buckets downsampling of a line
+ * <p>
+ * The points are split into buckets and from every bucket the point that forms the largest triangle
+ * with the point picked from the previous bucket and the average of the next bucket is kept.
+ * This keeps the peaks of the line, which averaging would flatten.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * @param x         x values, ascending
+     * @param y         y values
+     * @param size      number of points, only the first size values of x and y are used
+     * @param threshold maximum number of points to keep, at least 3
+     * @return indices of the points to keep, ascending
+     */
+    static int[] downsample(long[] x, double[] y, int size, int threshold) {
+        if (threshold < 3 || size <= threshold) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) all[i] = i;
+            return all;
+        }
+        final int[] sampled = new int[threshold];
+        //first and last point are always kept, the others are split into threshold - 2 buckets
+        final double bucketSize = (double) (size - 2) / (threshold - 2);
+        int a = 0;
+        sampled[0] = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            final int start = (int) (bucket * bucketSize) + 1;
+            final int end = (int) ((bucket + 1) * bucketSize) + 1;
+            //average of the next bucket
+            final int nextStart = end;
+            final int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+            //values that have not been measured (NaN) are left out
+            double avgX = 0, avgY = 0;
+            int nextCount = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                if (Double.isNaN(y[i])) continue;
+                avgX += x[i];
+                avgY += y[i];
+                nextCount++;
+            }
+            avgX = nextCount == 0 ? x[nextEnd - 1] : avgX / nextCount;
+            avgY = nextCount == 0 ? Double.NaN : avgY / nextCount;
+            //point with the largest triangle in this bucket
+            final double ax = x[a];
+            final double ay = Double.isNaN(y[a]) ? (Double.isNaN(avgY) ? 0 : avgY) : y[a];
+            if (Double.isNaN(avgY)) avgY = ay;
+            double maxArea = -1;
+            int max = start;
+            for (int i = start; i < end; i++) {
+                if (Double.isNaN(y[i])) continue;
+                final double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    max = i;
+                }
+            }
+            sampled[bucket + 1] = max;
+            a = max;
+        }
+        sampled[threshold - 1] = size - 1;
+        return sampled;
+    }
+}
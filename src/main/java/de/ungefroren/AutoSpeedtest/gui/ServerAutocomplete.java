@@ -0,0 +1,248 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.gui;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.JWindow;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.JTextComponent;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import de.ungefroren.AutoSpeedtest.backend.Server;
+import de.ungefroren.AutoSpeedtest.backend.ServerCatalog;
+
+/**
+ * Suggests servers from the {@link ServerCatalog} while a server id, sponsor or city is typed
+ * <p>
+ * The id of the selected server replaces the typed text. The catalog is searched on a background thread,
+ * a search only starts once no key has been typed for a short time.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ServerAutocomplete implements DocumentListener {
+
+    private static final String SEPARATORS = " \t\n,;/";
+    private static final int SUGGESTIONS = 8;
+
+    private final JTextComponent field;
+    private final ServerCatalog catalog;
+    private final DefaultListModel<Server> suggestions = new DefaultListModel<>();
+    private final JList<Server> list = new JList<>(suggestions);
+    private final Timer delay = new Timer(150, e -> search());
+
+    private JWindow popup = null;
+    private boolean inserting = false;
+
+    private ServerAutocomplete(JTextComponent field, ServerCatalog catalog) {
+        this.field = field;
+        this.catalog = catalog;
+        delay.setRepeats(false);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                accept();
+            }
+        });
+    }
+
+    /**
+     * Add autocompletion to a text field
+     *
+     * @param field   the field in which server ids are entered
+     * @param catalog the catalog to search
+     */
+    public static void install(JTextComponent field, ServerCatalog catalog) {
+        final ServerAutocomplete autocomplete = new ServerAutocomplete(field, catalog);
+        field.getDocument().addDocumentListener(autocomplete);
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!autocomplete.isShowing()) return;
+                final int selected = autocomplete.list.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        autocomplete.list.setSelectedIndex(Math.min(selected + 1, autocomplete.suggestions.size() - 1));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        autocomplete.list.setSelectedIndex(Math.max(selected - 1, 0));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                    case KeyEvent.VK_TAB:
+                        autocomplete.accept();
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        autocomplete.hide();
+                        e.consume();
+                        break;
+                }
+            }
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                autocomplete.hide();
+            }
+        });
+        //load the catalog while the user is still reading the dialog
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                catalog.getServers();
+                return null;
+            }
+        }.execute();
+    }
+
+    /**
+     * @return start and end of the id or name that is being typed
+     */
+    private int[] token() {
+        final String text = field.getText();
+        final int end = Math.min(field.getCaretPosition(), text.length());
+        int start = end;
+        while (start > 0 && SEPARATORS.indexOf(text.charAt(start - 1)) == -1) start--;
+        return new int[]{start, end};
+    }
+
+    private void search() {
+        final int[] token = token();
+        final String text = field.getText().substring(token[0], token[1]);
+        if (text.length() < 2) {
+            hide();
+            return;
+        }
+        new SwingWorker<List<Server>, Void>() {
+            @Override
+            protected List<Server> doInBackground() throws Exception {
+                return catalog.search(text, SUGGESTIONS);
+            }
+
+            @Override
+            protected void done() {
+                final int[] current = token();
+                //the user kept typing
+                if (!field.getText().substring(current[0], current[1]).equals(text)) return;
+                try {
+                    show(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    hide();
+                }
+            }
+        }.execute();
+    }
+
+    private void show(List<Server> servers) {
+        if (servers.isEmpty() || !field.isShowing()) {
+            hide();
+            return;
+        }
+        suggestions.clear();
+        servers.forEach(suggestions::addElement);
+        list.setSelectedIndex(0);
+        list.setVisibleRowCount(servers.size());
+        if (popup == null) {
+            popup = new JWindow(SwingUtilities.getWindowAncestor(field));
+            popup.setFocusableWindowState(false);
+            popup.getContentPane().add(new JScrollPane(list));
+        }
+        popup.pack();
+        try {
+            final Rectangle caret = field.modelToView(field.getCaretPosition());
+            final Point location = new Point(caret.x, caret.y + caret.height);
+            SwingUtilities.convertPointToScreen(location, field);
+            popup.setLocation(location);
+        } catch (BadLocationException e) {
+            return;
+        }
+        popup.setVisible(true);
+    }
+
+    private void hide() {
+        if (popup != null) popup.setVisible(false);
+    }
+
+    private boolean isShowing() {
+        return popup != null && popup.isVisible();
+    }
+
+    /**
+     * Replace the typed text with the id of the selected server
+     */
+    private void accept() {
+        final Server server = list.getSelectedValue();
+        hide();
+        if (server == null) return;
+        final int[] token = token();
+        inserting = true;
+        try {
+            field.getDocument().remove(token[0], token[1] - token[0]);
+            field.getDocument().insertString(token[0], server.getId() + ", ", null);
+        } catch (BadLocationException ignored) {
+        } finally {
+            inserting = false;
+        }
+    }
+
+    private void changed() {
+        if (!inserting) delay.restart();
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        changed();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        changed();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+    }
+}
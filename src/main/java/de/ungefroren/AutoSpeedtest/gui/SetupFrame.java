@@ -45,7 +45,6 @@ import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
-import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -53,6 +52,8 @@ import java.util.Set;
 import java.util.function.Predicate;
 
 import de.ungefroren.AutoSpeedtest.Main;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+import de.ungefroren.AutoSpeedtest.backend.ServerCatalog;
 
 /**
  * Dialog in which the settings for the speedtest can be changed
@@ -78,13 +79,20 @@ public class SetupFrame extends JDialog {
 
 
     public SetupFrame(Frame owner) {
+        this(owner, null);
+    }
+
+    /**
+     * @param owner   the main window
+     * @param catalog catalog used to suggest servers while typing or null
+     */
+    public SetupFrame(Frame owner, ServerCatalog catalog) {
         super(owner, "Setup", true);
         final Container contentPane = getContentPane();
 
         //serverIds
         String serverIds_tooltip = "<html>A list of ids of speedtest servers that the test should use.<br>" +
-                "You can find a full list of all servers under:<br>" +
-                "www.speedtestserver.com<br>" +
+                "Start typing an id, a sponsor or a city to get suggestions.<br>" +
                 "You can also leave it empty to use the best server available.</html>";
         JLabel serverIds_label = new JLabel("Server Ids:");
         serverIds_label.setFont(LABELS);
@@ -92,13 +100,14 @@ public class SetupFrame extends JDialog {
         contentPane.add(serverIds_label);
         serverIds = new JTextArea();
         serverIds.setToolTipText(serverIds_tooltip);
+        if (catalog != null) ServerAutocomplete.install(serverIds, catalog);
         JScrollPane serverIds_scroll = new JScrollPane(serverIds);
         serverIds_scroll.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         serverIds_scroll.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
         serverIds_scroll.setPreferredSize(new Dimension(150, 100));
         contentPane.add(serverIds_scroll);
         Warning serverIds_warning = new Warning("Server Ids must be a list of numeric ids!",
-                                                (e) -> serverIds.getText().matches("(\\d+\\s*[\\s,;/]\\s*)*"));
+                                                (e) -> serverIds.getText().matches("\\s*(\\d+([\\s,;/]+\\d+)*[\\s,;/]*)?"));
         serverIds.getDocument().addDocumentListener(serverIds_warning);
         contentPane.add(serverIds_warning);
 
@@ -178,7 +187,7 @@ public class SetupFrame extends JDialog {
         decimalSeparator_label.setFont(LABELS);
         decimalSeparator_label.setToolTipText(decimalSeparator_tooltip);
         contentPane.add(decimalSeparator_label);
-        decimalSeparator_field = new JTextField(String.valueOf(DecimalFormatSymbols.getInstance().getDecimalSeparator()));
+        decimalSeparator_field = new JTextField(String.valueOf(Speedtest.getDecimalSeparator()));
         Warning decimalSeparator_warning = new Warning("Decimal separator must be . or ,!",
                                                        (e) -> decimalSeparator_field.getText().matches("[,.]"));
         decimalSeparator_field.getDocument().addDocumentListener(decimalSeparator_warning);
@@ -274,8 +283,10 @@ public class SetupFrame extends JDialog {
     }
 
     public List<Integer> getServerIDs() {
-        if (serverIds.getText().isEmpty()) return new ArrayList<>();
-        String[] ids = serverIds.getText().split("\\s*[\\s,;/]\\s*");
+        final String text = serverIds.getText().trim();
+        if (text.isEmpty()) return new ArrayList<>();
+        //separators may repeat, e.g. "1, ,2" after an id was removed from the suggestions
+        String[] ids = text.split("[\\s,;/]+");
         List<Integer> list = new ArrayList<>(ids.length);
         for (String s : ids) {
             list.add(Integer.valueOf(s));
@@ -315,7 +326,7 @@ public class SetupFrame extends JDialog {
 
     public void updateDecimalSeperator() {
         char decimalSeparator = decimalSeparator_field.getText().charAt(0);
-        DecimalFormatSymbols.getInstance().setDecimalSeparator(decimalSeparator);
+        Speedtest.setDecimalSeparator(decimalSeparator);
     }
 
     /**
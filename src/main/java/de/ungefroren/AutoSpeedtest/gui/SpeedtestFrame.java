@@ -28,8 +28,7 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
-import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
+import javax.swing.JTabbedPane;
 import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 import java.awt.BorderLayout;
@@ -37,10 +36,14 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.HeadlessException;
 import java.awt.Toolkit;
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintStream;
 
+import de.ungefroren.AutoSpeedtest.Log;
+import de.ungefroren.AutoSpeedtest.ProgressMonitor;
+import de.ungefroren.AutoSpeedtest.backend.Progress;
+
 /**
  * Window displaying the progress of the speedtest
  * <p>
@@ -50,8 +53,11 @@ import java.io.PrintStream;
  */
 public class SpeedtestFrame extends JFrame {
 
-    private final JTextArea content;
+    public static final int DEFAULT_LINES = ConsolePanel.DEFAULT_LINES;
+
+    private final ConsolePanel console;
     private final JProgressBar progressBar;
+    private final ChartPanel chart;
 
     public SpeedtestFrame(String title) throws HeadlessException {
         //set frame properties
@@ -64,19 +70,20 @@ public class SpeedtestFrame extends JFrame {
         final BorderLayout layout = new BorderLayout();
         setLayout(layout);
         //add conetent text area with scroll bars
-        content = new JTextArea();
-        content.setEditable(false);
-        final JScrollPane scrollPane = new JScrollPane(content);
-        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
-        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
-        add(scrollPane, BorderLayout.CENTER);
+        console = new ConsolePanel(title);
+        //add chart in a second tab
+        chart = new ChartPanel();
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Log", console);
+        tabs.addTab("Chart", chart);
+        add(tabs, BorderLayout.CENTER);
         //add speedtest progress bar
         JPanel bottom = new JPanel();
         JLabel description = new JLabel("Speedtest: ");
         description.setFont(new Font("Calibri", Font.BOLD, 14));
         progressBar = new JProgressBar();
         progressBar.setIndeterminate(false);
+        progressBar.setMaximum(1000);
         progressBar.setPreferredSize(new Dimension(getWidth() - 250, 20));
         progressBar.setStringPainted(true);
         progressBar.setString("");
@@ -88,12 +95,29 @@ public class SpeedtestFrame extends JFrame {
         setVisible(true);
     }
 
+    /**
+     * Limit the number of lines that are displayed
+     *
+     * @param lines maximum number of lines, older lines are removed
+     * @param spill file to which all output is appended, so removed lines are not lost, or null
+     * @throws IOException if the spill file could not be opened
+     */
+    public void limitOutput(int lines, File spill) throws IOException {
+        console.limitOutput(lines, spill);
+    }
+
+    /**
+     * @see ConsolePanel#close()
+     */
+    public void closeOutput() {
+        console.close();
+    }
 
     /**
      * @return a PrintStream that writes all output to this frame
      */
     public PrintStream printer() {
-        return new PrintStream(new Out());
+        return console.printer();
     }
 
     /**
@@ -108,6 +132,15 @@ public class SpeedtestFrame extends JFrame {
         return this;
     }
 
+    /**
+     * Show the results of the log in the chart tab
+     *
+     * @param log the log, results that are logged later are added to the chart
+     */
+    public void showHistory(Log log) {
+        chart.show(log);
+    }
+
     /**
      * Indicates that a speedtest is running
      * <p>
@@ -131,6 +164,25 @@ public class SpeedtestFrame extends JFrame {
         });
     }
 
+    /**
+     * Show the progress of a running speedtest in the progress bar
+     *
+     * @param event the progress, see {@link ProgressMonitor#addListener(java.util.function.Consumer)}
+     */
+    public void showProgress(ProgressMonitor.Event event) {
+        if (event.getPhase() == Progress.Phase.DONE) return;
+        final String label = event.toString();
+        SwingUtilities.invokeLater(() -> {
+            if (event.getFraction() >= 0) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((int) (event.getFraction() * progressBar.getMaximum()));
+            } else {
+                progressBar.setIndeterminate(true);
+            }
+            progressBar.setString(label);
+        });
+    }
+
     /**
      * Stops the indication of any speedtests running
      * <p>
@@ -139,21 +191,8 @@ public class SpeedtestFrame extends JFrame {
     public void endSpeedtest() {
         SwingUtilities.invokeLater(() -> {
             progressBar.setIndeterminate(false);
+            progressBar.setValue(0);
             progressBar.setString("");
         });
     }
-
-    public class Out extends OutputStream {
-
-        private StringBuilder builder = new StringBuilder();
-
-        @Override
-        public void write(int b) throws IOException {
-            SwingUtilities.invokeLater(() -> {
-                byte[] bytes = {(byte) b};
-                content.append(new String(bytes));
-                content.setCaretPosition(content.getDocument().getLength());
-            });
-        }
-    }
 }
@@ -0,0 +1,352 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.query;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.ungefroren.AutoSpeedtest.Main;
+import de.ungefroren.AutoSpeedtest.Speedtest;
+import de.ungefroren.AutoSpeedtest.stats.Histogram;
+
+/**
+ * Aggregates the results of one or more log files
+ * <p>
+ * The files are split into chunks at line boundaries, which are parsed in parallel with fork-join.
+ * Only the aggregates are kept in memory, so files of any size can be queried.
+ * <p>
+ * Example: median download rate per server and weekday between 18:00 and 23:00
+ * <pre>
+ * java -jar AutoSpeedtest.jar query -log:speedtest-log.csv -hours:18-23 -group:server,weekday -values:download -aggregates:p50
+ * </pre>
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Query {
+
+    private final List<File> files = new ArrayList<>();
+    private final List<Group> groups = new ArrayList<>();
+    private final List<Value> values = new ArrayList<>(Arrays.asList(Value.values()));
+    private final List<String> aggregates = new ArrayList<>(Arrays.asList("min", "max", "mean", "p50"));
+    private final Charset charset = Charset.defaultCharset();
+    private char delimiter = Main.DEFAULT_DELIMETER;
+    private char decimalSeparator = Speedtest.getDecimalSeparator();
+    private LocalDate from = LocalDate.MIN;
+    private LocalDate to = LocalDate.MAX;
+    private int hourFrom = 0;
+    private int hourTo = 24;
+    private Set<DayOfWeek> weekdays = EnumSet.allOf(DayOfWeek.class);
+    private Set<String> servers = null;
+
+    /**
+     * Run a query from the command line and print the results as csv
+     *
+     * @param args arguments, see README
+     */
+    public static void main(String[] args) {
+        Query query = new Query();
+        for (String arg : args) {
+            Matcher m1 = Pattern.compile("-*log:(.+)").matcher(arg);
+            Matcher m2 = Pattern.compile("-*delimiter:([^\\s])").matcher(arg);
+            Matcher m3 = Pattern.compile("-*decimalSeparator:([^\\s])").matcher(arg);
+            Matcher m4 = Pattern.compile("-*from:(\\d{4}-\\d{2}-\\d{2})").matcher(arg);
+            Matcher m5 = Pattern.compile("-*to:(\\d{4}-\\d{2}-\\d{2})").matcher(arg);
+            Matcher m6 = Pattern.compile("-*hours:(\\d{1,2})-(\\d{1,2})").matcher(arg);
+            Matcher m7 = Pattern.compile("-*weekdays:([a-zA-Z,\\-]+)").matcher(arg);
+            Matcher m8 = Pattern.compile("-*servers?:(.+)").matcher(arg);
+            Matcher m9 = Pattern.compile("-*group:([a-z,]+)").matcher(arg);
+            Matcher m10 = Pattern.compile("-*values:([a-z,]+)").matcher(arg);
+            Matcher m11 = Pattern.compile("-*aggregates:([a-z0-9.,]+)").matcher(arg);
+            if (m1.matches()) {
+                Arrays.stream(m1.group(1).split(",")).forEach(f -> query.files.add(new File(f)));
+            } else if (m2.matches()) {
+                query.delimiter = m2.group(1).charAt(0);
+            } else if (m3.matches()) {
+                query.decimalSeparator = m3.group(1).charAt(0);
+            } else if (m4.matches()) {
+                query.from = LocalDate.parse(m4.group(1));
+            } else if (m5.matches()) {
+                query.to = LocalDate.parse(m5.group(1));
+            } else if (m6.matches()) {
+                query.hourFrom = Integer.parseInt(m6.group(1));
+                query.hourTo = Integer.parseInt(m6.group(2));
+            } else if (m7.matches()) {
+                query.weekdays = parseWeekdays(m7.group(1));
+            } else if (m8.matches()) {
+                query.servers = new HashSet<>();
+                for (String s : m8.group(1).split(",")) query.servers.add(s.trim().toLowerCase());
+            } else if (m9.matches()) {
+                query.groups.clear();
+                for (String s : m9.group(1).split(",")) query.groups.add(Group.valueOf(s.toUpperCase()));
+            } else if (m10.matches()) {
+                query.values.clear();
+                for (String s : m10.group(1).split(",")) query.values.add(Value.valueOf(s.toUpperCase()));
+            } else if (m11.matches()) {
+                query.aggregates.clear();
+                query.aggregates.addAll(Arrays.asList(m11.group(1).split(",")));
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                System.exit(1);
+            }
+        }
+        if (query.files.isEmpty()) query.files.add(new File(Main.DEFAULT_FILE));
+        try {
+            query.print(query.run());
+        } catch (IOException e) {
+            System.err.println("Could not read log file: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static Set<DayOfWeek> parseWeekdays(String text) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String part : text.split(",")) {
+            String[] range = part.split("-");
+            DayOfWeek first = parseWeekday(range[0]);
+            DayOfWeek last = parseWeekday(range[range.length - 1]);
+            for (DayOfWeek day = first; ; day = day.plus(1)) {
+                days.add(day);
+                if (day == last) break;
+            }
+        }
+        return days;
+    }
+
+    private static DayOfWeek parseWeekday(String text) {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().regionMatches(true, 0, text, 0, Math.max(text.length(), 2))) return day;
+        }
+        throw new IllegalArgumentException("Unknown weekday: " + text);
+    }
+
+    /**
+     * Aggregate all files
+     *
+     * @return a histogram per group and value (in the order of {@link #values})
+     * @throws IOException if a file could not be read
+     */
+    public Map<List<Object>, Histogram[]> run() throws IOException {
+        Map<List<Object>, Histogram[]> result = new HashMap<>();
+        for (File file : files) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                merge(result, new QueryTask(this, channel, 0, channel.size()).invoke());
+            }
+        }
+        return result;
+    }
+
+    static void merge(Map<List<Object>, Histogram[]> into, Map<List<Object>, Histogram[]> from) {
+        from.forEach((key, histograms) -> {
+            Histogram[] existing = into.putIfAbsent(key, histograms);
+            if (existing != null) {
+                for (int i = 0; i < existing.length; i++) existing[i].merge(histograms[i]);
+            }
+        });
+    }
+
+    /**
+     * Add a line of a log file to the aggregates, if it matches the filters
+     */
+    void accept(String line, Map<List<Object>, Histogram[]> result) {
+        final Speedtest test;
+        try {
+            test = Speedtest.fromCsv(line, delimiter, decimalSeparator);
+        } catch (IllegalArgumentException e) {
+            //header or broken line
+            return;
+        }
+        final LocalDate date = test.getTimestamp().toLocalDate();
+        if (date.isBefore(from) || date.isAfter(to)) return;
+        final int hour = test.getTimestamp().getHour();
+        if (hourFrom <= hourTo ? hour < hourFrom || hour >= hourTo : hour < hourFrom && hour >= hourTo) return;
+        if (!weekdays.contains(test.getTimestamp().getDayOfWeek())) return;
+        if (servers != null && !servers.contains(test.getServerName().toLowerCase())) return;
+        List<Object> key = new ArrayList<>(groups.size());
+        for (Group group : groups) key.add(group.of(test));
+        Histogram[] histograms = result.get(key);
+        if (histograms == null) {
+            histograms = new Histogram[values.size()];
+            for (int i = 0; i < histograms.length; i++) histograms[i] = new Histogram();
+            result.put(key, histograms);
+        }
+        for (int i = 0; i < histograms.length; i++) histograms[i].record(values.get(i).of(test));
+    }
+
+    Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Print the result as csv
+     */
+    private void print(Map<List<Object>, Histogram[]> result) {
+        final String delimiter = String.valueOf(this.delimiter);
+        StringJoiner header = new StringJoiner(delimiter);
+        for (Group group : groups) header.add(group.title);
+        header.add("Count");
+        for (Value value : values) {
+            for (String aggregate : aggregates) header.add(value.title + " " + aggregate + " (" + value.unit + ")");
+        }
+        System.out.println(header);
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        symbols.setDecimalSeparator(decimalSeparator);
+        DecimalFormat format = new DecimalFormat("0.000", symbols);
+        Map<List<Object>, Histogram[]> sorted = new TreeMap<>(Query::compare);
+        sorted.putAll(result);
+        sorted.forEach((key, histograms) -> {
+            StringJoiner row = new StringJoiner(delimiter);
+            for (int i = 0; i < key.size(); i++) row.add(groups.get(i).format(key.get(i)));
+            row.add(String.valueOf(histograms.length > 0 ? histograms[0].getCount() : 0));
+            for (Histogram histogram : histograms) {
+                for (String aggregate : aggregates) row.add(format.format(aggregate(histogram, aggregate)));
+            }
+            System.out.println(row);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(List<Object> a, List<Object> b) {
+        for (int i = 0; i < a.size(); i++) {
+            int c = ((Comparable<Object>) a.get(i)).compareTo(b.get(i));
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    private static double aggregate(Histogram histogram, String aggregate) {
+        switch (aggregate) {
+            case "count":
+                return histogram.getCount();
+            case "min":
+                return histogram.getMin();
+            case "max":
+                return histogram.getMax();
+            case "mean":
+                return histogram.getMean();
+            case "median":
+                return histogram.percentile(50);
+            default:
+                if (aggregate.startsWith("p")) return histogram.percentile(Double.parseDouble(aggregate.substring(1)));
+                throw new IllegalArgumentException("Unknown aggregate: " + aggregate);
+        }
+    }
+
+    /**
+     * Columns the results can be grouped by
+     */
+    public enum Group {
+        SERVER("Server") {
+            @Override
+            Object of(Speedtest test) {
+                return test.getServerName();
+            }
+        },
+        HOUR("Hour") {
+            @Override
+            Object of(Speedtest test) {
+                return test.getTimestamp().getHour();
+            }
+        },
+        WEEKDAY("Weekday") {
+            @Override
+            Object of(Speedtest test) {
+                return test.getTimestamp().getDayOfWeek();
+            }
+
+            @Override
+            String format(Object key) {
+                return ((DayOfWeek) key).getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+            }
+        };
+
+        private final String title;
+
+        Group(String title) {
+            this.title = title;
+        }
+
+        abstract Object of(Speedtest test);
+
+        String format(Object key) {
+            return String.valueOf(key);
+        }
+    }
+
+    /**
+     * Values that can be aggregated
+     */
+    public enum Value {
+        PING("Ping", "ms") {
+            @Override
+            double of(Speedtest test) {
+                return test.getPing();
+            }
+        },
+        DOWNLOAD("Download", "Mbit/s") {
+            @Override
+            double of(Speedtest test) {
+                return test.getDownload() / 1000000;
+            }
+        },
+        UPLOAD("Upload", "Mbit/s") {
+            @Override
+            double of(Speedtest test) {
+                return test.getUpload() / 1000000;
+            }
+        };
+
+        private final String title;
+        private final String unit;
+
+        Value(String title, String unit) {
+            this.title = title;
+            this.unit = unit;
+        }
+
+        abstract double of(Speedtest test);
+    }
+}
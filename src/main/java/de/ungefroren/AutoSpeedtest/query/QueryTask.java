@@ -0,0 +1,130 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.query;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+import de.ungefroren.AutoSpeedtest.stats.Histogram;
+
+/**
+ * Aggregates a range of a log file, ranges larger than {@value #CHUNK} bytes
+ * are split at a line boundary and processed in parallel
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+class QueryTask extends RecursiveTask<Map<List<Object>, Histogram[]>> {
+
+    private static final long CHUNK = 16 * 1024 * 1024;
+
+    private final Query query;
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+
+    /**
+     * @param query   the query
+     * @param channel the log file
+     * @param start   first byte of the range, must be the start of a line
+     * @param end     end of the range (exclusive), must be the start of a line or the end of the file
+     */
+    QueryTask(Query query, FileChannel channel, long start, long end) {
+        this.query = query;
+        this.channel = channel;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    protected Map<List<Object>, Histogram[]> compute() {
+        try {
+            if (end - start > CHUNK) {
+                final long split = nextLine(start + (end - start) / 2);
+                if (split < end) {
+                    QueryTask left = new QueryTask(query, channel, start, split);
+                    QueryTask right = new QueryTask(query, channel, split, end);
+                    left.fork();
+                    Map<List<Object>, Histogram[]> result = right.compute();
+                    Query.merge(result, left.join());
+                    return result;
+                }
+            }
+            return scan();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return position of the first line that starts at or after the given position
+     */
+    private long nextLine(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < end) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    private Map<List<Object>, Histogram[]> scan() throws IOException {
+        final Map<List<Object>, Histogram[]> result = new HashMap<>();
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] line = new byte[256];
+        int length = 0;
+        while (buffer.hasRemaining()) {
+            final byte b = buffer.get();
+            if (b == '\n') {
+                accept(line, length, result);
+                length = 0;
+            } else {
+                if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                line[length++] = b;
+            }
+        }
+        accept(line, length, result);
+        return result;
+    }
+
+    private void accept(byte[] line, int length, Map<List<Object>, Histogram[]> result) {
+        if (length > 0 && line[length - 1] == '\r') length--;
+        if (length == 0) return;
+        query.accept(new String(line, 0, length, query.getCharset()), result);
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.stats;
+
+/**
+ * Exponentially weighted moving average of a stream of values
+ * <p>
+ * Every value is weighted with {@code alpha} and the previous average with {@code 1 - alpha},
+ * so recent values count more and the update takes constant time and memory.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Ewma {
+
+    private final double alpha;
+    private double value = Double.NaN;
+    private long count = 0;
+
+    /**
+     * @param alpha weight of a new value between 0 and 1
+     */
+    public Ewma(double alpha) {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be between 0 and 1");
+        this.alpha = alpha;
+    }
+
+    /**
+     * @param value a new value, NaN is ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        //the first value is the average, instead of starting from 0
+        this.value = count++ == 0 ? value : this.value + alpha * (value - this.value);
+    }
+
+    /**
+     * @return the average or NaN if no values have been added
+     */
+    public double get() {
+        return value;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+}
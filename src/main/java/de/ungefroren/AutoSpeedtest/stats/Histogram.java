@@ -0,0 +1,166 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.stats;
+
+import java.util.Arrays;
+
+/**
+ * Histogram with logarithmic buckets for positive values
+ * <p>
+ * Every power of two is divided into {@value #SUB_BUCKETS} linear buckets, so percentiles are accurate
+ * to about 1% independent of the magnitude of the values. Buckets are allocated lazily per power of two,
+ * the memory used is bounded by the range of exponents. Histograms can be merged, which makes them usable
+ * for parallel aggregation.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKETS = 64;
+    private static final int MIN_EXPONENT = -20;
+    private static final int MAX_EXPONENT = 50;
+
+    private final long[][] buckets = new long[MAX_EXPONENT - MIN_EXPONENT + 1][];
+    private long zeros = 0;
+    private long count = 0;
+    private double sum = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * Add a value to the histogram
+     *
+     * @param value the value, values below zero are counted as zero
+     */
+    public void record(double value) {
+        if (Double.isNaN(value)) return;
+        count++;
+        sum += value;
+        if (count == 1 || value < min) min = value;
+        if (count == 1 || value > max) max = value;
+        if (value <= 0) {
+            zeros++;
+            return;
+        }
+        int exponent = Math.getExponent(value);
+        final int sub;
+        if (exponent < MIN_EXPONENT) {
+            exponent = MIN_EXPONENT;
+            sub = 0;
+        } else if (exponent > MAX_EXPONENT) {
+            exponent = MAX_EXPONENT;
+            sub = SUB_BUCKETS - 1;
+        } else {
+            sub = (int) ((value / Math.scalb(1.0, exponent) - 1) * SUB_BUCKETS);
+        }
+        long[] bucket = buckets[exponent - MIN_EXPONENT];
+        if (bucket == null) bucket = buckets[exponent - MIN_EXPONENT] = new long[SUB_BUCKETS];
+        bucket[sub]++;
+    }
+
+    /**
+     * Add all values of another histogram to this one
+     *
+     * @param other the other histogram
+     */
+    public void merge(Histogram other) {
+        if (other.count == 0) return;
+        if (count == 0 || other.min < min) min = other.min;
+        if (count == 0 || other.max > max) max = other.max;
+        count += other.count;
+        sum += other.sum;
+        zeros += other.zeros;
+        for (int i = 0; i < buckets.length; i++) {
+            if (other.buckets[i] == null) continue;
+            if (buckets[i] == null) buckets[i] = new long[SUB_BUCKETS];
+            for (int j = 0; j < SUB_BUCKETS; j++) buckets[i][j] += other.buckets[i][j];
+        }
+    }
+
+    /**
+     * Remove all values, the allocated buckets are kept
+     */
+    public void reset() {
+        for (long[] bucket : buckets) if (bucket != null) Arrays.fill(bucket, 0);
+        zeros = 0;
+        count = 0;
+        sum = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    /**
+     * @param percentile the percentile (0 - 100)
+     * @return an estimate of the value at the given percentile or NaN if the histogram is empty
+     */
+    public double percentile(double percentile) {
+        if (count == 0) return Double.NaN;
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = zeros;
+        if (seen >= rank) return Math.max(min, 0);
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] == null) continue;
+            for (int j = 0; j < SUB_BUCKETS; j++) {
+                seen += buckets[i][j];
+                if (seen >= rank) {
+                    //middle of the bucket, clamped to the actual range of the values
+                    double value = Math.scalb(1 + (j + 0.5) / SUB_BUCKETS, i + MIN_EXPONENT);
+                    return Math.min(Math.max(value, min), max);
+                }
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the smallest value or NaN if the histogram is empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value or NaN if the histogram is empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the arithmetic mean or NaN if the histogram is empty
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+}
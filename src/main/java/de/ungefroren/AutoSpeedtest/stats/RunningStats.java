@@ -0,0 +1,114 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.stats;
+
+/**
+ * Count, mean, variance, min and max of a stream of values in constant memory
+ * <p>
+ * Mean and variance are updated with Welford's algorithm, which stays accurate for long streams of similar values
+ * where summing up the squares would lose the precision.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class RunningStats {
+
+    private long count = 0;
+    private double mean = 0;
+    /**
+     * Sum of the squared differences from the mean
+     */
+    private double m2 = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * @param value a new value, NaN is ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        count++;
+        final double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (count == 1 || value < min) min = value;
+        if (count == 1 || value > max) max = value;
+    }
+
+    /**
+     * Add all values of other stats to this one
+     *
+     * @param other the other stats
+     */
+    public void merge(RunningStats other) {
+        if (other.count == 0) return;
+        if (count == 0 || other.min < min) min = other.min;
+        if (count == 0 || other.max > max) max = other.max;
+        final long total = count + other.count;
+        final double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the arithmetic mean or NaN if no value has been added
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return the sample variance or NaN if less than two values have been added
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    /**
+     * @return the sample standard deviation or NaN if less than two values have been added
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the smallest value or NaN if no value has been added
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value or NaN if no value has been added
+     */
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.store;
+
+/**
+ * Reads bits written by a {@link BitWriter}
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+class BitReader {
+
+    private final byte[] bytes;
+    private final int start;
+    private long bits = 0;
+
+    /**
+     * @param bytes bytes to read from
+     * @param start position of the first byte in the array
+     */
+    BitReader(byte[] bytes, int start) {
+        this.bytes = bytes;
+        this.start = start;
+    }
+
+    /**
+     * @param count number of bits to read (0 - 64)
+     * @return the bits as the lowest bits of a long
+     */
+    long read(int count) {
+        long value = 0;
+        while (count > 0) {
+            //take as many bits as possible from the current byte
+            final int offset = (int) (bits & 7);
+            final int take = Math.min(8 - offset, count);
+            final int b = bytes[start + (int) (bits >>> 3)] & 0xFF;
+            value = value << take | (b >>> (8 - offset - take) & (1 << take) - 1);
+            bits += take;
+            count -= take;
+        }
+        return value;
+    }
+
+    boolean readBit() {
+        final int b = bytes[start + (int) (bits >>> 3)];
+        return (b >>> (7 - (bits++ & 7)) & 1) != 0;
+    }
+}
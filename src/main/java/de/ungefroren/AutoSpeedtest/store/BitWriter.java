@@ -0,0 +1,73 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.store;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer that bits can be appended to
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+class BitWriter {
+
+    private byte[] bytes = new byte[256];
+    private long bits = 0;
+
+    /**
+     * Append the lowest bits of a value, most significant bit first
+     *
+     * @param value the value
+     * @param count number of bits to write (0 - 64)
+     */
+    void write(long value, int count) {
+        ensureCapacity(bits + count);
+        for (int i = count - 1; i >= 0; i--) {
+            if ((value >>> i & 1) != 0) bytes[(int) (bits >>> 3)] |= 0x80 >>> (bits & 7);
+            bits++;
+        }
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    private void ensureCapacity(long size) {
+        int needed = (int) ((size + 7) >>> 3);
+        if (needed > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(needed, bytes.length * 2));
+    }
+
+    /**
+     * @return number of bytes used
+     */
+    int length() {
+        return (int) ((bits + 7) >>> 3);
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * A compressed block of results
+ * <p>
+ * Timestamps are delta-of-delta encoded, ping, download and upload are XOR compressed against the previous
+ * value of the same server (like in Facebook's Gorilla) and server name, location and url are stored
+ * once per block in a dictionary.
+ * <p>
+ * Layout: {@code int count, long firstTimestamp, long lastTimestamp, int bitsLength, bits,
+ * short dictionarySize, dictionary entries (3 x UTF)}
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+class Block {
+
+    static final int MAX_RECORDS = 4096;
+    static final int MAX_SERVERS = 256;
+    static final ZoneId UTC = ZoneId.of("UTC");
+    private static final int HEADER = 4 + 8 + 8 + 4;
+
+    private final BitWriter bits = new BitWriter();
+    private final List<String[]> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+    private final List<Series[]> series = new ArrayList<>();
+
+    private int count = 0;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long previousDelta = 0;
+    private int previousServer = -1;
+
+    private static String key(String serverName, String location, String url) {
+        return serverName + '\u0000' + location + '\u0000' + url;
+    }
+
+    /**
+     * Decode a block and pass all results with a timestamp in the given range to the consumer
+     *
+     * @param buffer   buffer containing the block, starting at position 0, is copied once before decoding
+     * @param from     first timestamp in milliseconds (inclusive)
+     * @param to       last timestamp in milliseconds (inclusive)
+     * @param consumer consumer for the results
+     */
+    static void decode(ByteBuffer buffer, long from, long to, Consumer<Speedtest> consumer) {
+        final byte[] bytes = new byte[buffer.limit()];
+        buffer.duplicate().get(bytes, 0, bytes.length);
+        final ByteBuffer block = ByteBuffer.wrap(bytes);
+        final int count = block.getInt(0);
+        long timestamp = block.getLong(4);
+        final int bitsLength = block.getInt(20);
+        //dictionary
+        int position = HEADER + bitsLength;
+        final int dictionarySize = block.getShort(position) & 0xFFFF;
+        position += 2;
+        final String[][] dictionary = new String[dictionarySize][3];
+        for (int i = 0; i < dictionarySize; i++) {
+            for (int j = 0; j < 3; j++) {
+                int length = block.getShort(position) & 0xFFFF;
+                dictionary[i][j] = new String(bytes, position + 2, length, StandardCharsets.UTF_8);
+                position += 2 + length;
+            }
+        }
+        final Series[][] series = new Series[dictionarySize][];
+        //records
+        final BitReader reader = new BitReader(bytes, HEADER);
+        long delta = 0;
+        int server = -1;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += readDeltaOfDelta(reader);
+                timestamp += delta;
+            }
+            if (reader.readBit()) server = (int) reader.read(8);
+            if (series[server] == null) series[server] = new Series[]{new Series(), new Series(), new Series()};
+            double ping = series[server][0].read(reader);
+            double download = series[server][1].read(reader);
+            double upload = series[server][2].read(reader);
+            if (timestamp > to) return;
+            if (timestamp >= from) {
+                consumer.accept(Speedtest.of(Instant.ofEpochMilli(timestamp).atZone(UTC),
+                                             ping, download, upload,
+                                             dictionary[server][0], dictionary[server][1], dictionary[server][2]));
+            }
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader reader) {
+        if (!reader.readBit()) return 0;
+        if (!reader.readBit()) return signed(reader.read(7), 7);
+        if (!reader.readBit()) return signed(reader.read(12), 12);
+        if (!reader.readBit()) return signed(reader.read(20), 20);
+        if (!reader.readBit()) return signed(reader.read(32), 32);
+        return reader.read(64);
+    }
+
+    private static long signed(long value, int bits) {
+        return value << (64 - bits) >> (64 - bits);
+    }
+
+    private static boolean fits(long value, int bits) {
+        return value >= -(1L << (bits - 1)) && value < 1L << (bits - 1);
+    }
+
+    /**
+     * @return if a result for this server can still be added to the block
+     */
+    boolean canAdd(String serverName, String location, String url) {
+        return count < MAX_RECORDS
+                && (dictionary.size() < MAX_SERVERS || dictionaryIndex.containsKey(key(serverName, location, url)));
+    }
+
+    /**
+     * Encode a result into this block
+     *
+     * @param timestamp timestamp in milliseconds, must not be before the previous timestamp of this block
+     */
+    void add(long timestamp, double ping, double download, double upload,
+             String serverName, String location, String url) {
+        //timestamp
+        if (count == 0) {
+            firstTimestamp = timestamp;
+        } else {
+            long delta = timestamp - lastTimestamp;
+            long deltaOfDelta = delta - previousDelta;
+            previousDelta = delta;
+            if (deltaOfDelta == 0) {
+                bits.write(0b0, 1);
+            } else if (fits(deltaOfDelta, 7)) {
+                bits.write(0b10, 2);
+                bits.write(deltaOfDelta, 7);
+            } else if (fits(deltaOfDelta, 12)) {
+                bits.write(0b110, 3);
+                bits.write(deltaOfDelta, 12);
+            } else if (fits(deltaOfDelta, 20)) {
+                bits.write(0b1110, 4);
+                bits.write(deltaOfDelta, 20);
+            } else if (fits(deltaOfDelta, 32)) {
+                bits.write(0b11110, 5);
+                bits.write(deltaOfDelta, 32);
+            } else {
+                bits.write(0b11111, 5);
+                bits.write(deltaOfDelta, 64);
+            }
+        }
+        lastTimestamp = timestamp;
+        //server
+        final String key = key(serverName, location, url);
+        Integer server = dictionaryIndex.get(key);
+        if (server == null) {
+            server = dictionary.size();
+            dictionary.add(new String[]{serverName, location, url});
+            dictionaryIndex.put(key, server);
+            series.add(new Series[]{new Series(), new Series(), new Series()});
+        }
+        if (server == previousServer) {
+            bits.writeBit(false);
+        } else {
+            bits.writeBit(true);
+            bits.write(server, 8);
+            previousServer = server;
+        }
+        //values
+        final Series[] values = series.get(server);
+        values[0].write(bits, ping);
+        values[1].write(bits, download);
+        values[2].write(bits, upload);
+        count++;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * @return the serialized block
+     */
+    ByteBuffer serialize() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER + bits.length() + 64 * dictionary.size());
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(count);
+            data.writeLong(firstTimestamp);
+            data.writeLong(lastTimestamp);
+            data.writeInt(bits.length());
+            data.write(bits.bytes(), 0, bits.length());
+            data.writeShort(dictionary.size());
+            for (String[] entry : dictionary) {
+                for (String s : entry) {
+                    byte[] utf = s.getBytes(StandardCharsets.UTF_8);
+                    data.writeShort(utf.length);
+                    data.write(utf);
+                }
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * XOR compression state of one value of one server
+     */
+    private static class Series {
+
+        private long previous = 0;
+        private int leading = -1;
+        private int trailing = 0;
+
+        void write(BitWriter bits, double value) {
+            final long current = Double.doubleToRawLongBits(value);
+            final long xor = current ^ previous;
+            previous = current;
+            if (xor == 0) {
+                bits.writeBit(false);
+                return;
+            }
+            bits.writeBit(true);
+            final int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            final int trail = Long.numberOfTrailingZeros(xor);
+            if (leading >= 0 && lead >= leading && trail >= trailing) {
+                //meaningful bits fit into the previous window
+                bits.writeBit(false);
+                bits.write(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                final int length = 64 - lead - trail;
+                bits.writeBit(true);
+                bits.write(lead, 5);
+                bits.write(length - 1, 6);
+                bits.write(xor >>> trail, length);
+                leading = lead;
+                trailing = trail;
+            }
+        }
+
+        double read(BitReader bits) {
+            if (bits.readBit()) {
+                if (bits.readBit()) {
+                    leading = (int) bits.read(5);
+                    final int length = (int) bits.read(6) + 1;
+                    trailing = 64 - leading - length;
+                }
+                previous ^= bits.read(64 - leading - trailing) << trailing;
+            }
+            return Double.longBitsToDouble(previous);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * Append only binary store for speedtest results
+ * <p>
+ * Results are stored in one segment per month (UTC), e.g. {@code results-2018-07.seg} with the
+ * time index {@code results-2018-07.idx}. Results of the last block that isn't full yet are kept in
+ * {@code results-2018-07.tail} until the block is written. A range scan only reads the segments and blocks that overlap
+ * with the range.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ResultStore implements Closeable {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final String PREFIX = "results-";
+    private static final String DATA = ".seg";
+    private static final String INDEX = ".idx";
+    private static final String TAIL = ".tail";
+
+    private final File directory;
+    private final Map<YearMonth, Segment> segments = new HashMap<>();
+
+    /**
+     * @param directory directory containing the segments, is created if it doesn't exist
+     */
+    public ResultStore(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Append the results of a completed speedtest, the results are written with the next {@link #flush()}
+     *
+     * @param speedtest a completed speedtest
+     * @throws IOException if the segment could not be written
+     */
+    public synchronized void append(Speedtest speedtest) throws IOException {
+        final ZonedDateTime timestamp = speedtest.getTimestamp().withZoneSameInstant(ZoneId.of("UTC"));
+        final YearMonth month = YearMonth.from(timestamp);
+        Segment segment = segments.get(month);
+        if (segment == null) {
+            String name = PREFIX + MONTH.format(month);
+            segment = new Segment(new File(directory, name + DATA), new File(directory, name + INDEX),
+                                  new File(directory, name + TAIL));
+            segments.put(month, segment);
+        }
+        segment.append(timestamp.toInstant().toEpochMilli(),
+                       speedtest.getPing(),
+                       speedtest.getDownload(),
+                       speedtest.getUpload(),
+                       speedtest.getServerName(),
+                       speedtest.getLocation(),
+                       speedtest.getUrl());
+    }
+
+    /**
+     * Write all appended results to disk
+     *
+     * @param sync if the files should also be synced to the storage device
+     * @throws IOException if a segment could not be written
+     */
+    public synchronized void flush(boolean sync) throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.flush();
+            if (sync) segment.force();
+        }
+    }
+
+    /**
+     * Pass all results between from and to (both inclusive) to the consumer, ordered by segment
+     *
+     * @param from     start of the range
+     * @param to       end of the range
+     * @param consumer consumer for the results
+     * @throws IOException if a segment could not be read
+     */
+    public synchronized void scan(Instant from, Instant to, Consumer<Speedtest> consumer) throws IOException {
+        flush(false);
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(DATA));
+        if (files == null) return;
+        Arrays.sort(files);
+        final YearMonth first = YearMonth.from(from.atZone(ZoneId.of("UTC")));
+        final YearMonth last = YearMonth.from(to.atZone(ZoneId.of("UTC")));
+        for (File file : files) {
+            final String name = file.getName().substring(0, file.getName().length() - DATA.length());
+            final YearMonth month;
+            try {
+                month = YearMonth.parse(name.substring(PREFIX.length()), MONTH);
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (month.isBefore(first) || month.isAfter(last)) continue;
+            File index = new File(directory, name + INDEX);
+            if (!index.exists()) continue;
+            Segment.scan(file, index, new File(directory, name + TAIL), from.toEpochMilli(), to.toEpochMilli(), consumer);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.flush();
+            segment.force();
+            segment.close();
+        }
+        segments.clear();
+    }
+}
@@ -0,0 +1,301 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+/**
+ * A segment of the result store, consisting of a data file with {@link Block}s, an index file with
+ * the time range, offset and length of every block and a tail file with the results of the block that isn't full yet
+ * <p>
+ * All files are only appended to. A block is written to the data file once it is full and never changed afterwards,
+ * until then its results are appended to the tail file one by one. A block only counts once its index entry
+ * has been written, which happens after the block has been synced to disk. The tail file starts with the number
+ * of the block it belongs to, so a tail that has already been written as a block is recognized and dropped.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+class Segment implements Closeable {
+
+    /**
+     * Index entry: {@code long firstTimestamp, long lastTimestamp, long offset, int length, int count}
+     */
+    private static final int INDEX_ENTRY = 8 + 8 + 8 + 4 + 4;
+    /**
+     * Tail header: {@code long blockNumber}
+     */
+    private static final int TAIL_HEADER = 8;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final File tailFile;
+
+    private FileChannel data = null;
+    private FileChannel index = null;
+    private FileChannel tail = null;
+    private Block block = null;
+    private long blockOffset = 0;
+    private long blockNumber = 0;
+    private long tailSize = 0;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(256);
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+
+    Segment(File dataFile, File indexFile, File tailFile) {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.tailFile = tailFile;
+    }
+
+    /**
+     * Pass all results with a timestamp in the given range to the consumer
+     * <p>
+     * Only the index and the blocks that overlap with the range are mapped into memory.
+     *
+     * @param dataFile  the data file of the segment
+     * @param indexFile the index file of the segment
+     * @param tailFile  the tail file of the segment
+     * @param from      first timestamp in milliseconds (inclusive)
+     * @param to        last timestamp in milliseconds (inclusive)
+     * @param consumer  consumer for the results
+     * @throws IOException if the segment could not be read
+     */
+    static void scan(File dataFile, File indexFile, File tailFile, long from, long to, Consumer<Speedtest> consumer)
+            throws IOException {
+        long blocks = 0;
+        try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+             FileChannel data = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+            final long entries = index.size() / INDEX_ENTRY;
+            if (entries > 0) {
+                MappedByteBuffer idx = index.map(FileChannel.MapMode.READ_ONLY, 0, entries * INDEX_ENTRY);
+                final long dataSize = data.size();
+                for (int i = 0; i < entries; i++) {
+                    final int entry = i * INDEX_ENTRY;
+                    final long offset = idx.getLong(entry + 16);
+                    final int length = idx.getInt(entry + 24);
+                    if (offset + length > dataSize) break;
+                    blocks++;
+                    if (idx.getLong(entry) > to || idx.getLong(entry + 8) < from) continue;
+                    Block.decode(data.map(FileChannel.MapMode.READ_ONLY, offset, length), from, to, consumer);
+                }
+            }
+        }
+        if (!tailFile.exists()) return;
+        final byte[] bytes = Files.readAllBytes(tailFile.toPath());
+        if (bytes.length < TAIL_HEADER || ByteBuffer.wrap(bytes).getLong(0) != blocks) return;
+        readTail(bytes, (timestamp, ping, download, upload, serverName, location, url) -> {
+            if (timestamp < from || timestamp > to) return;
+            consumer.accept(Speedtest.of(Instant.ofEpochMilli(timestamp).atZone(Block.UTC), ping, download, upload,
+                                         serverName, location, url));
+        });
+    }
+
+    /**
+     * Read the results of a tail file, a result that wasn't written completely is ignored
+     *
+     * @return the length of the complete results including the header
+     */
+    private static int readTail(byte[] bytes, TailConsumer consumer) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, TAIL_HEADER, bytes.length - TAIL_HEADER));
+        int complete = TAIL_HEADER;
+        try {
+            while (complete < bytes.length) {
+                final long timestamp = in.readLong();
+                final double ping = in.readDouble();
+                final double download = in.readDouble();
+                final double upload = in.readDouble();
+                final String serverName = in.readUTF();
+                final String location = in.readUTF();
+                final String url = in.readUTF();
+                consumer.accept(timestamp, ping, download, upload, serverName, location, url);
+                complete = bytes.length - in.available();
+            }
+        } catch (EOFException ignored) {
+            //the last result was cut off by a crash
+        }
+        return complete;
+    }
+
+    private void open() throws IOException {
+        if (data != null) return;
+        if (dataFile.getParentFile() != null) dataFile.getParentFile().mkdirs();
+        data = FileChannel.open(dataFile.toPath(),
+                                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexFile.toPath(),
+                                 StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        tail = FileChannel.open(tailFile.toPath(),
+                                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        //continue after the last indexed block that is complete, anything behind it wasn't written completely
+        blockNumber = index.size() / INDEX_ENTRY;
+        final long dataSize = data.size();
+        blockOffset = 0;
+        final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+        for (long i = 0; i < blockNumber; i++) {
+            entry.clear();
+            readFully(index, entry, i * INDEX_ENTRY);
+            final long end = entry.getLong(16) + entry.getInt(24);
+            if (end > dataSize) {
+                blockNumber = i;
+                break;
+            }
+            blockOffset = end;
+        }
+        index.truncate(blockNumber * INDEX_ENTRY);
+        data.truncate(blockOffset);
+        //the results of the block that isn't full yet
+        final byte[] bytes = new byte[(int) tail.size()];
+        readFully(tail, ByteBuffer.wrap(bytes), 0);
+        block = new Block();
+        if (bytes.length >= TAIL_HEADER && ByteBuffer.wrap(bytes).getLong(0) == blockNumber) {
+            tailSize = readTail(bytes, block::add);
+            tail.truncate(tailSize);
+        } else {
+            //a new tail, or the tail of a block that has already been written completely
+            resetTail();
+        }
+    }
+
+    /**
+     * Append a result, the result is written with the next {@link #flush()}
+     */
+    void append(long timestamp, double ping, double download, double upload,
+                String serverName, String location, String url) throws IOException {
+        open();
+        if (block.getCount() > 0 && (!block.canAdd(serverName, location, url) || timestamp < block.getLastTimestamp())) {
+            writeBlock();
+        }
+        block.add(timestamp, ping, download, upload, serverName, location, url);
+        pendingOut.writeLong(timestamp);
+        pendingOut.writeDouble(ping);
+        pendingOut.writeDouble(download);
+        pendingOut.writeDouble(upload);
+        pendingOut.writeUTF(serverName);
+        pendingOut.writeUTF(location);
+        pendingOut.writeUTF(url);
+    }
+
+    /**
+     * Append the results since the last flush to the tail file
+     */
+    void flush() throws IOException {
+        if (pending.size() == 0) return;
+        ByteBuffer bytes = ByteBuffer.wrap(pending.toByteArray());
+        while (bytes.hasRemaining()) tailSize += tail.write(bytes, tailSize);
+        pending.reset();
+    }
+
+    /**
+     * Append the full block to the data file, commit it with its index entry and start a new block
+     */
+    private void writeBlock() throws IOException {
+        ByteBuffer bytes = block.serialize();
+        final int length = bytes.remaining();
+        long position = blockOffset;
+        while (bytes.hasRemaining()) position += data.write(bytes, position);
+        //the index entry must not reach the disk before the block
+        data.force(false);
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+        entry.putLong(block.getFirstTimestamp())
+                .putLong(block.getLastTimestamp())
+                .putLong(blockOffset)
+                .putInt(length)
+                .putInt(block.getCount())
+                .flip();
+        position = blockNumber * INDEX_ENTRY;
+        while (entry.hasRemaining()) position += index.write(entry, position);
+        //and the tail must not be dropped before the index entry is on the disk
+        index.force(false);
+        blockOffset += length;
+        blockNumber++;
+        block = new Block();
+        pending.reset();
+        resetTail();
+    }
+
+    private void resetTail() throws IOException {
+        tail.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(TAIL_HEADER);
+        header.putLong(blockNumber).flip();
+        tailSize = 0;
+        while (header.hasRemaining()) tailSize += tail.write(header, tailSize);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) throw new EOFException();
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Sync data, index and tail to disk
+     */
+    void force() throws IOException {
+        if (data == null) return;
+        data.force(false);
+        index.force(false);
+        tail.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (data == null) return;
+        flush();
+        data.close();
+        index.close();
+        tail.close();
+        data = null;
+        index = null;
+        tail = null;
+        block = null;
+    }
+
+    /**
+     * Receives the results of a tail file
+     */
+    private interface TailConsumer {
+
+        void accept(long timestamp, double ping, double download, double upload,
+                    String serverName, String location, String url) throws IOException;
+    }
+}
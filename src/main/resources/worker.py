@@ -0,0 +1,64 @@
+# Long running speedtest-cli worker used by AutoSpeedtest (-engine:worker)
+#
+# Keeps one speedtest.Speedtest object alive, so the config and the server list
+# are only downloaded once. Reads one JSON request per line from stdin:
+#   {"server": 1234}   or   {"server": null}
+# optionally with "download": false and/or "upload": false to skip a direction
+# and writes one JSON line with the results (same format as speedtest-cli --json)
+# or {"error": "..."} to stdout.
+import json
+import sys
+
+import speedtest
+
+
+def main():
+    timeout = int(sys.argv[1]) if len(sys.argv) > 1 else 10
+    st = speedtest.Speedtest(timeout=timeout, secure=True)
+    st.get_servers()
+    servers = {}
+    for candidates in st.servers.values():
+        for server in candidates:
+            servers[int(server['id'])] = server
+    closest = st.get_closest_servers()
+    respond({'ready': True, 'servers': len(servers)})
+
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            # fresh results object, so the timestamp is the start of this test
+            st.results = speedtest.SpeedtestResults(client=st.config['client'],
+                                                    opener=getattr(st, '_opener', None),
+                                                    secure=getattr(st, '_secure', True))
+            request = json.loads(line)
+            server_id = request.get('server')
+            if server_id is None:
+                st.get_best_server(closest)
+            else:
+                server_id = int(server_id)
+                if server_id not in servers:
+                    st.get_servers([server_id])
+                    for candidates in st.servers.values():
+                        for server in candidates:
+                            servers[int(server['id'])] = server
+                if server_id not in servers:
+                    raise ValueError('Unknown speedtest server #%d' % server_id)
+                st.get_best_server([servers[server_id]])
+            if request.get('download', True):
+                st.download()
+            if request.get('upload', True):
+                st.upload()
+            respond(st.results.dict())
+        except Exception as e:
+            respond({'error': '%s: %s' % (type(e).__name__, e)})
+
+
+def respond(obj):
+    sys.stdout.write(json.dumps(obj) + '\n')
+    sys.stdout.flush()
+
+
+if __name__ == '__main__':
+    main()
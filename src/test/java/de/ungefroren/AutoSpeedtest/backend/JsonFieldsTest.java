@@ -0,0 +1,104 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class JsonFieldsTest {
+
+    @Test
+    public void readsNestedFieldsAndArrayIndices() throws IOException {
+        final JsonFields fields = new JsonFields("ping", "server.sponsor", "end.streams.1.sender.mean_rtt");
+        final Map<String, String> values = fields.read("{\"ping\": 12.5, \"server\": {\"id\": 3, \"sponsor\": \"ISP\"},"
+                                                               + " \"end\": {\"streams\": [{\"sender\": {\"mean_rtt\": 1}},"
+                                                               + " {\"sender\": {\"mean_rtt\": 2e3}}]}}");
+        assertEquals(3, values.size());
+        assertEquals("12.5", values.get("ping"));
+        assertEquals("ISP", values.get("server.sponsor"));
+        assertEquals("2e3", values.get("end.streams.1.sender.mean_rtt"));
+    }
+
+    @Test
+    public void skipsOtherValues() throws IOException {
+        final JsonFields fields = new JsonFields("b");
+        final Map<String, String> values = fields.read("{\"a\": {\"b\": \"nested\", \"c\": [1, [true, null], {}]},"
+                                                               + " \"d\": [], \"b\": false}");
+        assertEquals(1, values.size());
+        assertEquals("false", values.get("b"));
+    }
+
+    @Test
+    public void unescapesStrings() throws IOException {
+        final Map<String, String> values = new JsonFields("s").read("{\"s\": \"a\\\"b\\\\c\\/d\\n\\u00e4\"}");
+        assertEquals("a\"b\\c/d\nä", values.get("s"));
+    }
+
+    @Test
+    public void omitsNullValues() throws IOException {
+        final Map<String, String> values = new JsonFields("a", "b").read("{\"a\": null, \"b\": 1}");
+        assertFalse(values.containsKey("a"));
+        assertEquals("1", values.get("b"));
+    }
+
+    @Test
+    public void convertsValues() throws IOException {
+        final Map<String, String> values = new JsonFields("a", "b").read("{\"a\": -1.5, \"b\": \"x\"}");
+        assertEquals(-1.5, JsonFields.getDouble(values, "a"), 0);
+        assertEquals("x", JsonFields.getString(values, "b"));
+        try {
+            JsonFields.getDouble(values, "b");
+            fail("b is not a number");
+        } catch (IOException expected) {
+        }
+        try {
+            JsonFields.getString(values, "c");
+            fail("c is missing");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsInvalidJson() {
+        final JsonFields fields = new JsonFields("a");
+        for (String json : new String[]{"", "{\"a\": 1", "{\"a\" 1}", "{\"a\": tru}", "{\"a\": \"x}", "[1 2]"}) {
+            try {
+                fields.read(json);
+                fail("Accepted " + json);
+            } catch (IOException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.backend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the {@link NativeBackend} against a local stand-in for the speedtest.net http endpoints
+ * <p>
+ * The stand-in serves three servers: {@code near} (#1), {@code dead} (#2) which is even closer but can't be
+ * reached and {@code slow} (#3) which answers the latency requests late.
+ * <p>
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class NativeBackendTest {
+
+    private static final int IMAGE_SIZE = 256 * 1024;
+
+    private HttpServer server;
+    private String base;
+    private final AtomicLong uploaded = new AtomicLong();
+
+    @Before
+    public void start() throws IOException {
+        final int deadPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPort = socket.getLocalPort();
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        server.createContext("/speedtest-config.php", exchange ->
+                respond(exchange, "<settings><client ip=\"127.0.0.1\" lat=\"50.0\" lon=\"8.0\"/></settings>"));
+        server.createContext("/servers.php", exchange -> respond(exchange, "<settings><servers>"
+                + server(1, "Near", base + "near/upload.php", 50.1, 8.1)
+                + server(2, "Dead", "http://127.0.0.1:" + deadPort + "/upload.php", 50.0, 8.0)
+                + server(3, "Slow", base + "slow/upload.php", 50.2, 8.2)
+                + "</servers></settings>"));
+        server.createContext("/near/", exchange -> serve(exchange, false));
+        server.createContext("/slow/", exchange -> serve(exchange, true));
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    private static String server(int id, String name, String url, double lat, double lon) {
+        return "<server url=\"" + url + "\" lat=\"" + lat + "\" lon=\"" + lon + "\" name=\"" + name
+                + "\" country=\"Germany\" sponsor=\"" + name + " Sponsor\" id=\"" + id + "\"/>";
+    }
+
+    private void serve(HttpExchange exchange, boolean slow) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        try {
+            if (path.endsWith("/latency.txt")) {
+                if (slow) Thread.sleep(100);
+                respond(exchange, "test=test\n");
+            } else if (path.matches(".*/random\\d+x\\d+\\.jpg")) {
+                exchange.sendResponseHeaders(200, IMAGE_SIZE);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(new byte[IMAGE_SIZE]);
+                }
+            } else if (path.endsWith("/upload.php")) {
+                final byte[] buffer = new byte[16 * 1024];
+                long size = 0;
+                try (InputStream in = exchange.getRequestBody()) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        size += read;
+                        uploaded.addAndGet(read);
+                    }
+                }
+                respond(exchange, "size=" + size);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            }
+        } catch (InterruptedException e) {
+            exchange.close();
+        } catch (IOException ignored) {
+            //the client dropped the connection at the deadline
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private NativeBackend backend(int streams, long testLength) {
+        return new NativeBackend(base + "speedtest-config.php", base + "servers.php", streams, testLength);
+    }
+
+    @Test
+    public void picksTheFastestReachableServer() throws IOException {
+        final Measurement measurement = new Measurement(Optional.empty());
+        backend(2, 300).latency(measurement);
+        assertEquals("Near Sponsor", measurement.getServerName());
+        assertEquals("Near", measurement.getLocation());
+        assertEquals(base + "near/upload.php", measurement.getUrl());
+        assertTrue(measurement.getPing() >= 0 && measurement.getPing() < 100);
+        assertNotNull(measurement.getTimestamp());
+    }
+
+    @Test
+    public void fillsAllFields() throws IOException {
+        final Measurement measurement = new Measurement(Optional.of(1));
+        backend(2, 300).bandwidth(measurement);
+        assertTrue(measurement.completed());
+        assertEquals("Near Sponsor", measurement.getServerName());
+        assertTrue(measurement.getDownload() > 0);
+        assertTrue(measurement.getUpload() > 0);
+        assertTrue(measurement.getProgress().getTotalBytes() > 0);
+        assertTrue(uploaded.get() > 0);
+    }
+
+    @Test
+    public void latencyScopeSkipsDownloadAndUpload() throws IOException {
+        final Measurement measurement = new Measurement(Optional.of(1));
+        measurement.setScope(Scope.LATENCY);
+        backend(2, 300).bandwidth(measurement);
+        assertTrue(measurement.completed());
+        assertTrue(Double.isNaN(measurement.getDownload()));
+        assertTrue(Double.isNaN(measurement.getUpload()));
+        assertEquals(0, uploaded.get());
+    }
+
+    @Test
+    public void failsForAnUnreachableServer() {
+        try {
+            backend(2, 300).latency(new Measurement(Optional.of(2)));
+            fail("Server #2 can't be reached");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void failsForAnUnknownServer() {
+        try {
+            backend(2, 300).latency(new Measurement(Optional.of(4)));
+            fail("Server #4 doesn't exist");
+        } catch (IOException expected) {
+            assertEquals("Unknown speedtest server #4", expected.getMessage());
+        }
+    }
+}
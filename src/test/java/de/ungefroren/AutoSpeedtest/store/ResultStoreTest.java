@@ -0,0 +1,191 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2018 Jonas Blocher
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ungefroren.AutoSpeedtest.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ungefroren.AutoSpeedtest.Speedtest;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created on 18.10.2026.
+ *
+ * @author Jonas Blocher
+ */
+public class ResultStoreTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2018, 7, 30, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("store").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        final File[] files = directory.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        directory.delete();
+    }
+
+    /**
+     * Every 10 minutes, alternating between 3 servers
+     */
+    private static Speedtest result(int i) {
+        final int server = i % 3;
+        return Speedtest.of(START.plusMinutes(10L * i).plusNanos((i % 7) * 1000000L), 10 + i % 13 * 0.25,
+                            50e6 + i * 1000, server == 0 ? 10e6 : 10e6 + i, "Server " + server, "Stadt ä" + server,
+                            "http://server" + server + ".example/upload.php");
+    }
+
+    private static void assertResult(int i, Speedtest actual) {
+        final Speedtest expected = result(i);
+        assertEquals(expected.getTimestamp().toInstant(), actual.getTimestamp().toInstant());
+        assertEquals(expected.getPing(), actual.getPing(), 0);
+        assertEquals(expected.getDownload(), actual.getDownload(), 0);
+        assertEquals(expected.getUpload(), actual.getUpload(), 0);
+        assertEquals(expected.getServerName(), actual.getServerName());
+        assertEquals(expected.getLocation(), actual.getLocation());
+        assertEquals(expected.getUrl(), actual.getUrl());
+    }
+
+    private List<Speedtest> scan(ResultStore store, Instant from, Instant to) throws IOException {
+        final List<Speedtest> results = new ArrayList<>();
+        store.scan(from, to, results::add);
+        return results;
+    }
+
+    private List<Speedtest> scanAll() throws IOException {
+        try (ResultStore store = new ResultStore(directory)) {
+            return scan(store, Instant.EPOCH, Instant.now());
+        }
+    }
+
+    private void append(ResultStore store, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            store.append(result(i));
+            store.flush(false);
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        //more than one block and two months
+        final int count = Block.MAX_RECORDS + 1000;
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 0, count);
+        }
+        final List<Speedtest> results = scanAll();
+        assertEquals(count, results.size());
+        for (int i = 0; i < count; i++) assertResult(i, results.get(i));
+    }
+
+    @Test
+    public void scansARange() throws IOException {
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 0, 1000);
+            final List<Speedtest> results = scan(store, result(100).getTimestamp().toInstant(),
+                                                 result(199).getTimestamp().toInstant());
+            assertEquals(100, results.size());
+            for (int i = 0; i < 100; i++) assertResult(100 + i, results.get(i));
+        }
+    }
+
+    @Test
+    public void continuesAfterReopening() throws IOException {
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 0, 100);
+        }
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 100, Block.MAX_RECORDS + 100);
+        }
+        final List<Speedtest> results = scanAll();
+        assertEquals(Block.MAX_RECORDS + 100, results.size());
+        for (int i = 0; i < results.size(); i++) assertResult(i, results.get(i));
+    }
+
+    @Test
+    public void keepsFlushedResultsWithoutClose() throws IOException {
+        final ResultStore store = new ResultStore(directory);
+        append(store, 0, 100);
+        final List<Speedtest> results = scanAll();
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) assertResult(i, results.get(i));
+        store.close();
+    }
+
+    @Test
+    public void dropsATornResult() throws IOException {
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 0, 10);
+        }
+        final File[] tails = directory.listFiles((dir, name) -> name.endsWith(".tail"));
+        assertEquals(1, tails.length);
+        try (RandomAccessFile tail = new RandomAccessFile(tails[0], "rw")) {
+            tail.setLength(tail.length() - 5);
+        }
+        assertEquals(9, scanAll().size());
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 9, 20);
+        }
+        final List<Speedtest> results = scanAll();
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) assertResult(i, results.get(i));
+    }
+
+    @Test
+    public void ignoresAnUncommittedBlock() throws IOException {
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 0, 10);
+        }
+        //a block that was written without its index entry
+        final File[] segments = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        assertEquals(1, segments.length);
+        try (RandomAccessFile segment = new RandomAccessFile(segments[0], "rw")) {
+            segment.setLength(segment.length() + 1000);
+        }
+        assertEquals(10, scanAll().size());
+        try (ResultStore store = new ResultStore(directory)) {
+            append(store, 10, Block.MAX_RECORDS + 10);
+        }
+        final List<Speedtest> results = scanAll();
+        assertEquals(Block.MAX_RECORDS + 10, results.size());
+        for (int i = 0; i < results.size(); i++) assertResult(i, results.get(i));
+    }
+}